@@ -0,0 +1,96 @@
+package com.paulocanale;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * RemoteControl.submit against submitAsync for a burst of commands spread over a
+ * number of receivers. With one receiver the async commands run one at a time;
+ * with many they spread over the common pool, so throughput should grow with the
+ * number of cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncCommandBenchmark {
+    private static final int BURST = 256;
+
+    @Param({"1", "64"})
+    private int receivers;
+
+    @Param({"1000"})
+    private int workTokens;
+
+    private RemoteControl remote;
+    private CommandPattern[] commands;
+
+    @Setup
+    public void setUp() {
+        remote = new RemoteControl(ForkJoinPool.commonPool());
+        commands = new CommandPattern[BURST];
+        Object[] targets = new Object[receivers];
+        for (int i = 0; i < receivers; i++) {
+            targets[i] = new Object();
+        }
+        for (int i = 0; i < BURST; i++) {
+            commands[i] = new WorkCommand(targets[i % receivers], workTokens);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void submit() {
+        for (CommandPattern command : commands) {
+            remote.submit(command);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void submitAsync() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[BURST];
+        for (int i = 0; i < BURST; i++) {
+            futures[i] = remote.submitAsync(commands[i]);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    // Command that burns a fixed amount of CPU on its receiver, standing in for real work
+    private static final class WorkCommand implements CommandPattern {
+        private final Object receiver;
+        private final int tokens;
+
+        WorkCommand(Object receiver, int tokens) {
+            this.receiver = receiver;
+            this.tokens = tokens;
+        }
+
+        @Override
+        public void execute() {
+            Blackhole.consumeCPU(tokens);
+        }
+
+        @Override
+        public Object getReceiver() {
+            return receiver;
+        }
+    }
+}
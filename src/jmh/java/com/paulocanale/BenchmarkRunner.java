@@ -0,0 +1,24 @@
+package com.paulocanale;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count listed in the
+ * benchmark.threads system property (comma separated, default "1").
+ * Arguments are standard JMH command line options, e.g. a benchmark regex.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        for (String threads : System.getProperty("benchmark.threads", "1").split(",")) {
+            new Runner(new OptionsBuilder()
+                    .parent(options)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.paulocanale;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * (a + b) - c over column datasets: one frame evaluation per row against the
+ * chunked columnar loops, sequential and fork-join.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnarBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private BoundExpression bound;
+    private ColumnarEvaluator evaluator;
+    private int[][] columns;
+    private int[] out;
+
+    @Setup
+    public void setUp() {
+        bound = BoundExpression.bind(new Subtraction(new Addition(new Variable("a"), new Variable("b")), new Variable("c")));
+        evaluator = new ColumnarEvaluator(bound);
+        Random random = new Random(42);
+        columns = new int[bound.getSlotCount()][rows];
+        for (int[] column : columns) {
+            for (int i = 0; i < rows; i++) {
+                column[i] = random.nextInt();
+            }
+        }
+        out = new int[rows];
+    }
+
+    @Benchmark
+    public int[] rowByRow() {
+        int[] frame = bound.newFrame();
+        for (int row = 0; row < rows; row++) {
+            for (int slot = 0; slot < frame.length; slot++) {
+                frame[slot] = columns[slot][row];
+            }
+            out[row] = bound.interpret(frame);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public int[] columnar() {
+        evaluator.evaluate(columns, out);
+        return out;
+    }
+
+    @Benchmark
+    public int[] columnarParallel() {
+        evaluator.evaluateParallel(columns, out, ForkJoinPool.commonPool());
+        return out;
+    }
+}
@@ -0,0 +1,87 @@
+package com.paulocanale;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A burst of on/off switching over a few lights, submitted straight to the
+ * RemoteControl or through a CommandBatcher that collapses it to the final state
+ * of each light. Throughput counts submitted commands.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandBatcherBenchmark {
+    private static final int BURST = 256;
+
+    @Param({"1", "16"})
+    private int lights;
+
+    private PrintStream console;
+    private ScheduledExecutorService scheduler;
+    private RemoteControl remote;
+    private CommandBatcher batcher;
+    private CommandPattern[] commands;
+
+    @Setup
+    public void setUp() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        remote = new RemoteControl();
+        batcher = new CommandBatcher(remote, BURST, Duration.ofMillis(1), scheduler);
+        Light[] targets = new Light[lights];
+        for (int i = 0; i < lights; i++) {
+            targets[i] = new Light();
+        }
+        commands = new CommandPattern[BURST];
+        for (int i = 0; i < BURST; i++) {
+            Light light = targets[i % lights];
+            commands[i] = ((i / lights) % 2 == 0) ? new TurnOnCommand(light) : new TurnOffCommand(light);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        batcher.close();
+        scheduler.shutdown();
+        System.setOut(console);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void direct() {
+        for (CommandPattern command : commands) {
+            remote.submit(command);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void batched() {
+        for (CommandPattern command : commands) {
+            batcher.submit(command);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.paulocanale;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RemoteControl.submit recording into the object list and into a
+ * CompactCommandHistory, plus an undo/redo round trip. Fresh commands are
+ * submitted each time, as a caller would, so with -prof gc the list shows the
+ * commands it keeps alive while the compact history keeps none.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandHistoryBenchmark {
+    private static final int CAPACITY = 1 << 20;
+
+    private PrintStream console;
+    private Light light;
+    private RemoteControl listRemote;
+    private RemoteControl compactRemote;
+    private boolean on;
+
+    @Setup
+    public void setUp() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        light = new Light();
+        listRemote = new RemoteControl();
+        compactRemote = new RemoteControl(new CompactCommandHistory(new CommandCodec().register(0, light), CAPACITY));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    private CommandPattern next() {
+        on = !on;
+        return on ? new TurnOnCommand(light) : new TurnOffCommand(light);
+    }
+
+    @Benchmark
+    public void submitListHistory() {
+        listRemote.submit(next());
+    }
+
+    @Benchmark
+    public void submitCompactHistory() {
+        compactRemote.submit(next());
+    }
+
+    @Benchmark
+    public boolean undoRedo() {
+        if (!compactRemote.undo()) {
+            compactRemote.submit(next());
+        }
+        return compactRemote.redo();
+    }
+}
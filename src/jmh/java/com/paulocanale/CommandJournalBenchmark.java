@@ -0,0 +1,75 @@
+package com.paulocanale;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Durable RemoteControl.submit through a CommandJournal. Run with several threads
+ * (-t, or -Dbenchmark.threads with the benchmarks profile) to see group commit
+ * share each force among concurrent submitters; append measures the record write
+ * alone.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandJournalBenchmark {
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private PrintStream console;
+    private Path directory;
+    private CommandJournal journal;
+    private RemoteControl remote;
+    private CommandPattern turnOn;
+
+    @Setup
+    public void setUp() throws IOException {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Light light = new Light();
+        directory = Files.createTempDirectory("command-journal-benchmark");
+        journal = CommandJournal.open(directory, new CommandCodec().register(0, light), SEGMENT_SIZE);
+        remote = new RemoteControl(journal);
+        turnOn = new TurnOnCommand(light);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        System.setOut(console);
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void submit() {
+        remote.submit(turnOn);
+    }
+
+    @Benchmark
+    public long append() {
+        return journal.append(turnOn);
+    }
+}
@@ -0,0 +1,70 @@
+package com.paulocanale;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FileLogger writes with rolling every 64 MB, forcing every message or periodically.
+ * Run with "-prof gc" to check that steady-state logging allocates nothing per message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileLoggerBenchmark {
+    // Milliseconds between forces to storage; 0 forces every message
+    @Param({"0", "100", "1000"})
+    public long forceIntervalMillis;
+
+    @Param({"32", "256"})
+    public int messageLength;
+
+    private Path directory;
+    private FileLogger logger;
+    private String message;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("file-logger-benchmark");
+        logger = new FileLogger.FileLoggerBuilder(Logger.INFO, "INFO: ", directory.resolve("benchmark.log"))
+                .maxFileBytes(64L * 1024 * 1024)
+                .maxBackups(1)
+                .forceInterval(Duration.ofMillis(forceIntervalMillis))
+                .build();
+        message = "x".repeat(messageLength);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        logger.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void write() {
+        logger.logMessage(Logger.ERROR, message);
+    }
+}
@@ -0,0 +1,74 @@
+package com.paulocanale;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tree-walking interpret against the compiled MethodHandle chain and slot-resolved
+ * frame evaluation, over balanced trees of alternating additions and subtractions with the given depth.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InterpreterBenchmark {
+    @Param({"2", "6", "10"})
+    public int depth;
+
+    private Map<String, Integer> context;
+    private Expression tree;
+    private Expression compiled;
+    private BoundExpression bound;
+    private int[] frame;
+
+    @Setup
+    public void setUp() {
+        context = new HashMap<>();
+        int[] variables = {0};
+        tree = build(depth, variables);
+        compiled = ExpressionCompiler.compile(tree);
+        bound = BoundExpression.bind(tree);
+        frame = bound.frameOf(context);
+    }
+
+    private Expression build(int remaining, int[] variables) {
+        if (remaining == 0) {
+            String name = "v" + variables[0]++;
+            context.put(name, variables[0]);
+            return (variables[0] % 4 == 0) ? new Number(variables[0]) : new Variable(name);
+        }
+        Expression left = build(remaining - 1, variables);
+        Expression right = build(remaining - 1, variables);
+        return (remaining % 2 == 0) ? new Addition(left, right) : new Subtraction(left, right);
+    }
+
+    @Benchmark
+    public int interpret() {
+        return tree.interpret(context);
+    }
+
+    @Benchmark
+    public int compiled() {
+        return compiled.interpret(context);
+    }
+
+    @Benchmark
+    public int frame() {
+        return bound.interpret(frame);
+    }
+}
@@ -0,0 +1,104 @@
+package com.paulocanale;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Logger.logMessage dispatch through chains of INFO -> WARNING -> ERROR handlers,
+ * repeated to the given length. Console output is discarded, so the cost measured
+ * is dispatch and formatting rather than terminal I/O. The async variant wraps every
+ * handler in an AsyncLogger and measures the caller's side only; the compiled variant
+ * dispatches through a LoggerChain table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggerBenchmark {
+    @Param({"3", "30"})
+    public int chainLength;
+
+    @Param({"1", "3"})
+    public int level;
+
+    private Logger chain;
+    private Logger asyncChain;
+    private LoggerChain compiledChain;
+    private final List<AsyncLogger> asyncLoggers = new ArrayList<>();
+    private PrintStream console;
+
+    @Setup
+    public void setUp() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        chain = buildChain(false);
+        asyncChain = buildChain(true);
+        compiledChain = LoggerChain.compile(chain);
+    }
+
+    private Logger buildChain(boolean async) {
+        Logger last = null;
+        for (int i = chainLength - 1; i >= 0; i--) {
+            Logger logger = switch (i % 3) {
+                case 0 -> new InfoLogger(Logger.INFO);
+                case 1 -> new WarningLogger(Logger.WARNING);
+                default -> new ErrorLogger(Logger.ERROR);
+            };
+            if (async) {
+                AsyncLogger asyncLogger = new AsyncLogger(logger, 8192,
+                        AsyncLogger.WaitStrategy.YIELDING, AsyncLogger.OverflowPolicy.BLOCK);
+                asyncLoggers.add(asyncLogger);
+                logger = asyncLogger;
+            }
+            logger.setNextLogger(last);
+            last = logger;
+        }
+        return last;
+    }
+
+    @TearDown
+    public void tearDown() {
+        asyncLoggers.forEach(AsyncLogger::close);
+        asyncLoggers.clear();
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void logMessage() {
+        chain.logMessage(level, "This is a benchmark message.");
+    }
+
+    @Benchmark
+    public void logMessageAsync() {
+        asyncChain.logMessage(level, "This is a benchmark message.");
+    }
+
+    @Benchmark
+    public void logMessageCompiled() {
+        compiledChain.logMessage(level, "This is a benchmark message.");
+    }
+
+    @Benchmark
+    public void logMessageSuppressed() {
+        // Below every handler's level: the supplier must never run
+        compiledChain.logMessage(0, () -> "Suppressed message at level " + level);
+    }
+}
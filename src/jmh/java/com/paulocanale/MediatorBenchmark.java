@@ -0,0 +1,122 @@
+package com.paulocanale;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ChatRoom.sendMessage broadcast to rooms of the given size. Users only consume
+ * the message, so the cost measured is the mediator's delivery.
+ * sendMessageConcurrent broadcasts a burst through a ConcurrentChatRoom with one
+ * partition per core on a ForkJoinPool and waits until every user has received it,
+ * so its score is the end-to-end time per message. publish and sendDirect route
+ * through the ChatRoom's index to a 100-user topic and to a single user.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MediatorBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int users;
+
+    private static final int BURST = 100;
+    private static final int TOPIC_SUBSCRIBERS = 100;
+
+    private ChatRoom room;
+    private User sender;
+    private ExecutorService executor;
+    private ConcurrentChatRoom concurrentRoom;
+    private User concurrentSender;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        room = new ChatRoom();
+        for (int i = 0; i < users; i++) {
+            User user = new ConsumingUser(room, "user" + i, blackhole);
+            room.addUser(user);
+            // Spread the topic's subscribers over the room
+            if (i % Math.max(1, users / TOPIC_SUBSCRIBERS) == 0) {
+                room.subscribe("topic", user);
+            }
+        }
+        sender = new ConsumingUser(room, "sender", blackhole);
+        room.addUser(sender);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        executor = new ForkJoinPool(cores);
+        concurrentRoom = new ConcurrentChatRoom(cores, BURST, executor);
+        for (int i = 0; i < users; i++) {
+            concurrentRoom.addUser(new ConsumingUser(concurrentRoom, "user" + i, blackhole));
+        }
+        concurrentSender = new ConsumingUser(concurrentRoom, "sender", blackhole);
+        concurrentRoom.addUser(concurrentSender);
+        concurrentRoom.awaitIdle();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void sendMessage() {
+        room.sendMessage("Hello, everyone!", sender);
+    }
+
+    @Benchmark
+    public void publish() {
+        room.publish("Hello, topic!", sender, "topic");
+    }
+
+    @Benchmark
+    public boolean sendDirect() {
+        return room.sendDirect("Hello, you!", sender, "user0");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void sendMessageConcurrent() {
+        for (int i = 0; i < BURST; i++) {
+            concurrentRoom.sendMessage("Hello, everyone!", concurrentSender);
+        }
+        concurrentRoom.awaitIdle();
+    }
+
+    // User whose receive does no I/O
+    static final class ConsumingUser extends User {
+        private final Blackhole blackhole;
+
+        ConsumingUser(ChatMediator mediator, String name, Blackhole blackhole) {
+            super(mediator, name);
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void send(String message) {
+            mediator.sendMessage(message, this);
+        }
+
+        @Override
+        public void receive(String message) {
+            blackhole.consume(message);
+        }
+    }
+}
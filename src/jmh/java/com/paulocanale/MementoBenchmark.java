@@ -0,0 +1,81 @@
+package com.paulocanale;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EditorHistory saving a large document after small edits, and restoring the
+ * save furthest from a checkpoint. checkpointInterval 1 keeps a full memento per
+ * save, as the history used to, so all 64 documents stay reachable; 16 keeps 4
+ * documents plus 60 deltas of a few bytes. This measures what that costs in time:
+ * the diff on save and the replay on restore.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MementoBenchmark {
+    private static final int SAVES = 64;
+
+    @Param({"262144"})
+    private int documentLength;
+
+    @Param({"1", "16"})
+    private int checkpointInterval;
+
+    private TextEditor[] versions;
+    private EditorHistory history;
+    private TextEditor editor;
+
+    @Setup
+    public void setUp() {
+        StringBuilder document = new StringBuilder(documentLength);
+        for (int i = 0; i < documentLength; i++) {
+            document.append((char) ('a' + i % 26));
+        }
+        versions = new TextEditor[SAVES];
+        for (int i = 0; i < SAVES; i++) {
+            // A one-word edit somewhere in the document
+            int position = (int) ((long) i * 7919 % documentLength);
+            document.replace(position, Math.min(documentLength, position + 5), "edit" + i % 10);
+            document.setLength(documentLength);
+            versions[i] = new TextEditor();
+            versions[i].write(document.toString());
+        }
+        history = new EditorHistory(checkpointInterval);
+        for (TextEditor version : versions) {
+            history.save(version);
+        }
+        editor = new TextEditor();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAVES)
+    public EditorHistory save() {
+        EditorHistory fresh = new EditorHistory(checkpointInterval);
+        for (TextEditor version : versions) {
+            fresh.save(version);
+        }
+        return fresh;
+    }
+
+    @Benchmark
+    public String restoreBeforeCheckpoint() {
+        history.restore(editor, checkpointInterval - 1);
+        return editor.getContent();
+    }
+}
@@ -0,0 +1,98 @@
+package com.paulocanale;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * TemperatureSensor.setTemperature fan-out to the given number of observers.
+ * Observers only consume the value, so the cost measured is the notification itself.
+ * Run with several threads (-t, or -Dbenchmark.threads with the benchmarks profile)
+ * to measure concurrent notifiers; the churn group adds observer registration
+ * running alongside three notifying threads. setTemperatureConflated notifies the
+ * same observers through conflating AsyncObserver mailboxes drained by two threads.
+ * setTemperatureWindowed maintains a 1000-reading window for window observers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObserverBenchmark {
+    @Param({"1", "10", "1000"})
+    public int observers;
+
+    private TemperatureSensor sensor;
+    private ObserverPattern churning;
+    private TemperatureSensor conflatedSensor;
+    private TemperatureSensor windowedSensor;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        sensor = new TemperatureSensor();
+        conflatedSensor = new TemperatureSensor();
+        windowedSensor = new TemperatureSensor(1000, null);
+        executor = Executors.newFixedThreadPool(2);
+        for (int i = 0; i < observers; i++) {
+            sensor.addObserver(blackhole::consume);
+            conflatedSensor.addObserver(new AsyncObserver(blackhole::consume, executor, 1,
+                    AsyncObserver.DeliveryPolicy.CONFLATE));
+            windowedSensor.addWindowObserver((min, max, mean, count) -> blackhole.consume(mean));
+        }
+        churning = blackhole::consume;
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void setTemperature() {
+        sensor.setTemperature(ThreadLocalRandom.current().nextFloat() * 40);
+    }
+
+    @Benchmark
+    public void setTemperatureConflated() {
+        conflatedSensor.setTemperature(ThreadLocalRandom.current().nextFloat() * 40);
+    }
+
+    @Benchmark
+    public void setTemperatureWindowed() {
+        windowedSensor.setTemperature(ThreadLocalRandom.current().nextFloat() * 40);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(3)
+    public void notifyDuringChurn() {
+        sensor.setTemperature(ThreadLocalRandom.current().nextFloat() * 40);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void addRemoveObserver() {
+        sensor.addObserver(churning);
+        sensor.removeObserver(churning);
+    }
+}
@@ -0,0 +1,95 @@
+package com.paulocanale;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing a whole corpus of generated expressions, uncached and through the LRU
+ * parse cache. The cached run repeats a hot subset, as production traffic does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+    @Param({"10000", "100000"})
+    public int corpusSize;
+
+    @Param({"8", "64"})
+    public int operands;
+
+    private String[] corpus;
+    private String[] hot;
+    private ExpressionParseCache cache;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        corpus = new String[corpusSize];
+        for (int i = 0; i < corpusSize; i++) {
+            corpus[i] = generate(random);
+        }
+        // 1% of the corpus receives all the cached traffic
+        hot = new String[Math.max(1, corpusSize / 100)];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = corpus[random.nextInt(corpusSize)];
+        }
+        cache = new ExpressionParseCache(hot.length * 2);
+    }
+
+    private String generate(Random random) {
+        StringBuilder text = new StringBuilder();
+        int open = 0;
+        for (int i = 0; i < operands; i++) {
+            if (i > 0) {
+                text.append(random.nextBoolean() ? " + " : " - ");
+            }
+            if (random.nextInt(4) == 0) {
+                text.append('(');
+                open++;
+            }
+            if (random.nextBoolean()) {
+                text.append(random.nextInt(1000));
+            } else {
+                text.append("var").append(random.nextInt(50));
+            }
+            if (open > 0 && random.nextInt(3) == 0) {
+                text.append(')');
+                open--;
+            }
+        }
+        while (open-- > 0) {
+            text.append(')');
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public void parseCorpus(Blackhole blackhole) {
+        for (String source : corpus) {
+            blackhole.consume(ExpressionParser.parse(source));
+        }
+    }
+
+    @Benchmark
+    public void parseHotCached(Blackhole blackhole) {
+        for (int i = 0; i < corpus.length; i++) {
+            blackhole.consume(cache.parse(hot[i % hot.length]));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.paulocanale;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A temperature random walk (steps of up to 0.1°C over 0..40°C) watched by observers
+ * with random one-degree bands. indexed registers them as threshold observers;
+ * scanned registers plain observers that each check their own band on every reading.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ThresholdBenchmark {
+    private static final int WALK_LENGTH = 1 << 16;
+
+    @Param({"1000", "100000"})
+    public int observers;
+
+    private TemperatureSensor indexedSensor;
+    private TemperatureSensor scannedSensor;
+    private float[] walk;
+    private int step;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        Random random = new Random(42);
+        indexedSensor = new TemperatureSensor();
+        scannedSensor = new TemperatureSensor();
+        for (int i = 0; i < observers; i++) {
+            float low = random.nextFloat() * 40;
+            float high = low + 1;
+            indexedSensor.addThresholdObserver(low, high, new ThresholdObserver() {
+                @Override
+                public void entered(float temperature) {
+                    blackhole.consume(temperature);
+                }
+
+                @Override
+                public void exited(float temperature) {
+                    blackhole.consume(temperature);
+                }
+            });
+            scannedSensor.addObserver(new ObserverPattern() {
+                private boolean inside;
+
+                @Override
+                public void update(float temperature) {
+                    boolean isInside = low <= temperature && temperature <= high;
+                    if (isInside != inside) {
+                        inside = isInside;
+                        blackhole.consume(temperature);
+                    }
+                }
+            });
+        }
+        walk = new float[WALK_LENGTH];
+        float temperature = 20;
+        for (int i = 0; i < WALK_LENGTH; i++) {
+            temperature = Math.max(0, Math.min(40, temperature + (random.nextFloat() - 0.5f) * 0.2f));
+            walk[i] = temperature;
+        }
+    }
+
+    @Benchmark
+    public void indexed() {
+        indexedSensor.setTemperature(walk[step++ & (WALK_LENGTH - 1)]);
+    }
+
+    @Benchmark
+    public void scanned() {
+        scannedSensor.setTemperature(walk[step++ & (WALK_LENGTH - 1)]);
+    }
+}
@@ -0,0 +1,65 @@
+package com.paulocanale;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TreeFactory.getTreeType lookups over a pre-populated set of tree types.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeFactoryBenchmark {
+    @Param({"16", "4096"})
+    public int types;
+
+    private String[] names;
+    private String[] colors;
+    private String[] textures;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        names = new String[types];
+        colors = new String[types];
+        textures = new String[types];
+        for (int i = 0; i < types; i++) {
+            // Fresh strings, as parsed from input, so lookups cannot rely on identity
+            names[i] = new String("Tree" + (i % 64));
+            colors[i] = new String("Color" + (i / 64));
+            textures[i] = new String("Rough");
+            TreeFactory.getTreeType(names[i], colors[i], textures[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public TreeType getTreeType() {
+        int i = ThreadLocalRandom.current().nextInt(types);
+        return TreeFactory.getTreeType(names[i], colors[i], textures[i]);
+    }
+}
@@ -0,0 +1,109 @@
+package com.paulocanale;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Viewport and nearest-neighbour queries over a forest of uniformly placed trees:
+ * linear scan of every Tree against the TreeGrid index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class TreeGridBenchmark {
+    private static final int WORLD_SIZE = 1_000_000;
+    private static final int VIEWPORT_SIZE = 2_000;
+
+    @Param({"1000000", "10000000"})
+    public int trees;
+
+    @Param({"500"})
+    public int cellSize;
+
+    private Tree[] forest;
+    private TreeGrid grid;
+    private int[] viewports;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        TreeType[] types = {
+                new TreeType("Oak", "Green", "Rough"),
+                new TreeType("Pine", "Dark Green", "Smooth")
+        };
+        forest = new Tree[trees];
+        grid = new TreeGrid(cellSize);
+        for (int i = 0; i < trees; i++) {
+            forest[i] = new Tree(random.nextInt(WORLD_SIZE), random.nextInt(WORLD_SIZE), types[i & 1]);
+            grid.insert(forest[i]);
+        }
+        viewports = new int[1024];
+        for (int i = 0; i < viewports.length; i++) {
+            viewports[i] = random.nextInt(WORLD_SIZE - VIEWPORT_SIZE);
+        }
+    }
+
+    private int nextOrigin() {
+        return viewports[next++ & (viewports.length - 1)];
+    }
+
+    @Benchmark
+    public void viewportLinearScan(Blackhole blackhole) {
+        int minX = nextOrigin();
+        int minY = nextOrigin();
+        int maxX = minX + VIEWPORT_SIZE;
+        int maxY = minY + VIEWPORT_SIZE;
+        for (Tree tree : forest) {
+            if (tree.getX() >= minX && tree.getX() <= maxX && tree.getY() >= minY && tree.getY() <= maxY) {
+                blackhole.consume(tree);
+            }
+        }
+    }
+
+    @Benchmark
+    public void viewportGrid(Blackhole blackhole) {
+        int minX = nextOrigin();
+        int minY = nextOrigin();
+        grid.query(minX, minY, minX + VIEWPORT_SIZE, minY + VIEWPORT_SIZE, blackhole::consume);
+    }
+
+    @Benchmark
+    public Tree nearestLinearScan() {
+        int x = nextOrigin();
+        int y = nextOrigin();
+        Tree best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (Tree tree : forest) {
+            double dx = (double) tree.getX() - x;
+            double dy = (double) tree.getY() - y;
+            double distance = dx * dx + dy * dy;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = tree;
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public Tree nearestGrid() {
+        return grid.nearest(nextOrigin(), nextOrigin());
+    }
+}
@@ -0,0 +1,256 @@
+package com.paulocanale;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Async Logger
+ *
+ * Chain of Responsibility handler that takes the write of another handler off the
+ * caller's thread. Producers claim a slot of a preallocated ring buffer with a
+ * single CAS and publish the message into it; a background consumer thread reads
+ * every published slot in order and writes them in batches. When the delegate
+ * prints to the console, the console lock is taken once per batch instead of once
+ * per message; other delegates write without it.
+ *
+ * The consumer waits for messages with the configured WaitStrategy; a full ring is
+ * handled by the OverflowPolicy. close() drains every accepted message before it
+ * returns, and is also run by a shutdown hook so messages are not lost at exit.
+ * A write that throws on the consumer thread is passed to the failure handler,
+ * see Failures, and the consumer carries on with the next message.
+ */
+final class AsyncLogger extends Logger implements AutoCloseable {
+    enum WaitStrategy {
+        // Lowest latency, burns a core while idle
+        BUSY_SPIN,
+        // Spins briefly, then yields the CPU to other threads
+        YIELDING,
+        // Spins briefly, then sleeps in short naps
+        SLEEPING,
+        // Parks until a producer wakes the consumer up
+        BLOCKING
+    }
+
+    enum OverflowPolicy {
+        // Wait for the consumer to free a slot
+        BLOCK,
+        // Discard the message and count it
+        DROP,
+        // Write the message on the caller's thread, possibly out of order
+        CALLER_RUNS
+    }
+
+    private final Logger delegate;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread.UncaughtExceptionHandler failureHandler;
+    private final String[] messages;
+    // Sequence last published into each slot; a slot is readable once it holds the expected sequence
+    private final AtomicLongArray published;
+    private final int mask;
+    // Next sequence to claim
+    private final AtomicLong next = new AtomicLong();
+    // Last sequence written by the consumer
+    private volatile long consumed = -1;
+    private volatile boolean consumerParked;
+    private volatile boolean closed;
+    private final AtomicInteger activeProducers = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread consumer;
+    private final Thread shutdownHook;
+
+    public AsyncLogger(Logger delegate, int bufferSize, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+        this(delegate, bufferSize, waitStrategy, overflowPolicy, Failures.TO_THREAD);
+    }
+
+    /**
+     * @param delegate       handler whose write runs on the consumer thread; its level is used as ours
+     * @param bufferSize     ring capacity, a power of two
+     * @param waitStrategy   how the idle consumer waits for messages
+     * @param overflowPolicy what producers do when the ring is full
+     * @param failureHandler receives the exceptions the delegate throws on the consumer thread
+     */
+    public AsyncLogger(Logger delegate, int bufferSize, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy,
+                       Thread.UncaughtExceptionHandler failureHandler) {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of two");
+        }
+        this.delegate = delegate;
+        this.level = delegate.level;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+        this.failureHandler = Objects.requireNonNull(failureHandler, "failureHandler");
+        this.messages = new String[bufferSize];
+        this.published = new AtomicLongArray(bufferSize);
+        for (int slot = 0; slot < bufferSize; slot++) {
+            published.set(slot, -1);
+        }
+        this.mask = bufferSize - 1;
+        this.consumer = new Thread(this::consume, "async-logger");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+        this.shutdownHook = new Thread(this::close, "async-logger-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    protected void write(String message) {
+        activeProducers.incrementAndGet();
+        try {
+            if (closed) {
+                // The consumer may be gone: write synchronously so nothing is lost
+                delegate.write(message);
+                return;
+            }
+            long sequence = claim();
+            if (sequence < 0) {
+                if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+                    delegate.write(message);
+                } else {
+                    dropped.increment();
+                }
+                return;
+            }
+            int slot = (int) sequence & mask;
+            messages[slot] = message;
+            published.set(slot, sequence);
+            if (consumerParked) {
+                LockSupport.unpark(consumer);
+            }
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    // Claims the next sequence, or returns -1 if the ring is full and the policy does not block
+    private long claim() {
+        int tries = 0;
+        while (true) {
+            long sequence = next.get();
+            if (sequence - messages.length > consumed) {
+                if (overflowPolicy != OverflowPolicy.BLOCK) {
+                    return -1;
+                }
+                if (consumerParked) {
+                    LockSupport.unpark(consumer);
+                }
+                tries = backOff(tries);
+            } else if (next.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    private void consume() {
+        int tries = 0;
+        while (true) {
+            long first = consumed + 1;
+            long last = first - 1;
+            while (last - first + 1 < messages.length && published.get((int) (last + 1) & mask) == last + 1) {
+                last++;
+            }
+            if (last >= first) {
+                flush(first, last);
+                tries = 0;
+            } else if (closed && activeProducers.get() == 0 && next.get() == first) {
+                // Closed, no producer in flight and everything claimed is written
+                return;
+            } else {
+                tries = idle(tries);
+            }
+        }
+    }
+
+    private void flush(long first, long last) {
+        if (delegate.writesToConsole()) {
+            // println re-enters this lock, so the console is locked once for the whole batch;
+            // read System.out per batch so a later System.setOut is honored
+            synchronized (System.out) {
+                writeBatch(first, last);
+            }
+        } else {
+            writeBatch(first, last);
+        }
+        consumed = last;
+    }
+
+    private void writeBatch(long first, long last) {
+        for (long sequence = first; sequence <= last; sequence++) {
+            int slot = (int) sequence & mask;
+            String message = messages[slot];
+            messages[slot] = null;
+            try {
+                delegate.write(message);
+            } catch (RuntimeException e) {
+                // A failing handler must not kill the consumer
+                Failures.report(failureHandler, e);
+            }
+        }
+    }
+
+    private int idle(int tries) {
+        if (waitStrategy != WaitStrategy.BLOCKING) {
+            return backOff(tries);
+        }
+        consumerParked = true;
+        // Re-check after announcing the park so a concurrent publish cannot be missed
+        long expected = consumed + 1;
+        if (published.get((int) expected & mask) != expected && !closed) {
+            LockSupport.parkNanos(this, Backoff.SLEEP_NANOS * 10);
+        }
+        consumerParked = false;
+        return 0;
+    }
+
+    private int backOff(int tries) {
+        if (waitStrategy == WaitStrategy.BUSY_SPIN) {
+            Thread.onSpinWait();
+        } else if (waitStrategy == WaitStrategy.YIELDING && tries >= Backoff.SPIN_TRIES) {
+            Thread.yield();
+        } else {
+            return Backoff.pause(tries);
+        }
+        return tries + 1;
+    }
+
+    /**
+     * @return the number of messages discarded by the DROP policy
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting messages into the ring and waits until every accepted message
+     * has been written. Messages logged afterwards are written synchronously.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        if (Thread.currentThread() != consumer) {
+            boolean interrupted = false;
+            while (consumer.isAlive()) {
+                try {
+                    consumer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down: the hook is running or done
+            }
+        }
+    }
+}
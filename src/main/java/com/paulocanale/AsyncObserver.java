@@ -0,0 +1,195 @@
+package com.paulocanale;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Async Observer
+ *
+ * Decorator that moves an observer's update off the notifying thread. Readings go
+ * into the observer's own bounded mailbox and a SerialExecutor on the supplied
+ * Executor delivers them in order, so a slow observer only delays itself.
+ *
+ * With the QUEUE policy every reading is delivered and a full mailbox blocks the
+ * notifying thread until the observer catches up (backpressure). With CONFLATE the
+ * mailbox keeps only the latest reading: a slow observer skips stale temperatures
+ * and never holds up the sensor. Lag metrics show how far behind the observer is.
+ *
+ * Register the AsyncObserver itself with the sensor, and remove it the same way.
+ * With QUEUE, do not notify from a thread of the executor the observer drains on:
+ * a full mailbox would wait for a drain that cannot run.
+ */
+final class AsyncObserver implements ObserverPattern {
+    enum DeliveryPolicy {
+        // Deliver every reading, blocking the notifier while the mailbox is full
+        QUEUE,
+        // Deliver only the latest reading, replacing any that is still pending
+        CONFLATE
+    }
+
+    private final ObserverPattern delegate;
+    // Runs one deliverNext per reading in the ring, in order
+    private final SerialExecutor mailbox;
+    private final Runnable deliverNext = this::deliverNext;
+    private final DeliveryPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    // Mailbox ring, guarded by lock
+    private final float[] temperatures;
+    private final long[] enqueuedNanos;
+    private int head;
+    private int pending;
+
+    // Metrics, written under lock
+    private long delivered;
+    private long conflated;
+    private volatile long lastLatencyNanos;
+    private volatile long maxLatencyNanos;
+
+    /**
+     * @param delegate observer whose update runs on the executor
+     * @param executor runs the drain tasks
+     * @param capacity mailbox size for QUEUE; CONFLATE always keeps a single reading
+     * @param policy   what happens when readings arrive faster than they are delivered
+     */
+    public AsyncObserver(ObserverPattern delegate, Executor executor, int capacity, DeliveryPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = (policy == DeliveryPolicy.CONFLATE) ? 1 : capacity;
+        this.delegate = delegate;
+        this.mailbox = new SerialExecutor(executor);
+        this.policy = policy;
+        this.temperatures = new float[size];
+        this.enqueuedNanos = new long[size];
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException if the executor refuses
+     *                                                         the delivery; the reading is dropped
+     */
+    @Override
+    public void update(float temperature) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (pending == temperatures.length) {
+                if (policy == DeliveryPolicy.CONFLATE) {
+                    // Replace the undelivered reading but keep its timestamp, so lag keeps growing;
+                    // its delivery is already queued
+                    temperatures[head] = temperature;
+                    conflated++;
+                    return;
+                }
+                while (pending == temperatures.length) {
+                    notFull.awaitUninterruptibly();
+                }
+            }
+            int tail = (head + pending) % temperatures.length;
+            temperatures[tail] = temperature;
+            enqueuedNanos[tail] = now;
+            pending++;
+            // Under the lock, so deliveries are queued in ring order and a rejected one is the tail
+            try {
+                mailbox.execute(deliverNext);
+            } catch (RuntimeException e) {
+                pending--;
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs on the mailbox; failures are reported by the SerialExecutor
+    private void deliverNext() {
+        float temperature;
+        long enqueued;
+        lock.lock();
+        try {
+            temperature = temperatures[head];
+            enqueued = enqueuedNanos[head];
+            head = (head + 1) % temperatures.length;
+            pending--;
+            notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            delegate.update(temperature);
+        } finally {
+            recordDelivery(System.nanoTime() - enqueued);
+        }
+    }
+
+    private void recordDelivery(long latencyNanos) {
+        lock.lock();
+        try {
+            delivered++;
+            lastLatencyNanos = latencyNanos;
+            if (latencyNanos > maxLatencyNanos) {
+                maxLatencyNanos = latencyNanos;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of readings waiting in the mailbox
+     */
+    public int getPending() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how long the oldest undelivered reading has been waiting, or 0 if the mailbox is empty
+     */
+    public long getLagNanos() {
+        lock.lock();
+        try {
+            return (pending == 0) ? 0 : System.nanoTime() - enqueuedNanos[head];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDelivered() {
+        lock.lock();
+        try {
+            return delivered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of readings replaced by a newer one before delivery (CONFLATE only)
+     */
+    public long getConflated() {
+        lock.lock();
+        try {
+            return conflated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return time from notification to the end of update for the last delivered reading
+     */
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+}
@@ -0,0 +1,30 @@
+package com.paulocanale;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Backoff
+ *
+ * One step of a polling wait: spin for the first SPIN_TRIES tries, then sleep in
+ * naps of SLEEP_NANOS. The caller keeps the number of tries and resets it to 0
+ * whenever the condition it waits for makes progress.
+ */
+final class Backoff {
+    static final int SPIN_TRIES = 100;
+    static final long SLEEP_NANOS = 100_000;
+
+    private Backoff() {
+    }
+
+    /**
+     * @return the number of tries including this one
+     */
+    static int pause(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(SLEEP_NANOS);
+        }
+        return tries + 1;
+    }
+}
@@ -0,0 +1,119 @@
+package com.paulocanale;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bound Expression
+ *
+ * Result of resolving every variable name of an Expression tree to a slot index.
+ * Binding happens once; afterwards the tree is evaluated against an int[] frame
+ * holding one value per slot, so the hot path does no hashing and no boxing.
+ * The Map based interpret remains available as a compatibility path.
+ */
+final class BoundExpression implements Expression {
+    private final Expression expression;
+    private final String[] slotNames;
+    private final Map<String, Integer> slots;
+
+    private BoundExpression(Expression expression, String[] slotNames, Map<String, Integer> slots) {
+        this.expression = expression;
+        this.slotNames = slotNames;
+        this.slots = slots;
+    }
+
+    /**
+     * Assigns a slot to each distinct variable name, in order of first appearance,
+     * and rebuilds the tree with slot-resolved variables.
+     *
+     * @param expression the tree to bind
+     * @return the bound expression
+     * @throws IllegalArgumentException if the tree holds a node other than Number,
+     *                                  Variable, Addition or Subtraction, such as a
+     *                                  compiled expression, whose variables cannot be
+     *                                  given slots
+     */
+    public static BoundExpression bind(Expression expression) {
+        Map<String, Integer> slots = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        Expression bound = bind(expression, slots, names);
+        return new BoundExpression(bound, names.toArray(new String[0]), slots);
+    }
+
+    private static Expression bind(Expression expression, Map<String, Integer> slots, List<String> names) {
+        if (expression instanceof Variable variable) {
+            Integer slot = slots.get(variable.getName());
+            if (slot == null) {
+                slot = names.size();
+                slots.put(variable.getName(), slot);
+                names.add(variable.getName());
+            }
+            return new Variable(variable.getName(), slot);
+        }
+        if (expression instanceof Addition addition) {
+            return new Addition(bind(addition.getLeftExpression(), slots, names),
+                    bind(addition.getRightExpression(), slots, names));
+        }
+        if (expression instanceof Subtraction subtraction) {
+            return new Subtraction(bind(subtraction.getLeftExpression(), slots, names),
+                    bind(subtraction.getRightExpression(), slots, names));
+        }
+        if (expression instanceof Number) {
+            return expression;
+        }
+        if (expression instanceof BoundExpression bound) {
+            // Slots are per binding: assign them again within this one
+            return bind(bound.getExpression(), slots, names);
+        }
+        throw new IllegalArgumentException("Cannot bind " + expression.getClass().getSimpleName()
+                + ": only Number, Variable, Addition and Subtraction trees can be bound");
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    public int getSlotCount() {
+        return slotNames.length;
+    }
+
+    /**
+     * @param name variable name
+     * @return the slot of the variable, or -1 if the expression does not use it
+     */
+    public int slotOf(String name) {
+        return slots.getOrDefault(name, -1);
+    }
+
+    public String[] getSlotNames() {
+        return Arrays.copyOf(slotNames, slotNames.length);
+    }
+
+    public int[] newFrame() {
+        return new int[slotNames.length];
+    }
+
+    /**
+     * Builds a frame from a name based context; missing variables default to 0.
+     */
+    public int[] frameOf(Map<String, Integer> context) {
+        int[] frame = newFrame();
+        for (int slot = 0; slot < slotNames.length; slot++) {
+            frame[slot] = context.getOrDefault(slotNames[slot], 0);
+        }
+        return frame;
+    }
+
+    @Override
+    public int interpret(int[] frame) {
+        return expression.interpret(frame);
+    }
+
+    @Override
+    public int interpret(Map<String, Integer> context) {
+        return expression.interpret(context);
+    }
+}
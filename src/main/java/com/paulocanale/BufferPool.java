@@ -0,0 +1,57 @@
+package com.paulocanale;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffer Pool
+ *
+ * Pool of equally sized direct ByteBuffers. Direct buffers are what socket I/O
+ * reads and writes without an extra copy, but they are expensive to allocate and
+ * are freed only by the garbage collector, so connections borrow them from here
+ * and give them back. At most maxPooled idle buffers are kept; beyond that,
+ * released buffers are left to the collector. Thread-safe.
+ */
+final class BufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return an empty buffer of bufferSize bytes, reused when one is available
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer taken from acquire; the caller must not use it afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        if (pooled.incrementAndGet() <= maxPooled) {
+            buffers.add(buffer.clear());
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
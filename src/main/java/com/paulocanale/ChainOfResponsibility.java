@@ -1,5 +1,11 @@
 package com.paulocanale;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Supplier;
+
 /**
  * Chain of Responsibility Pattern Example
  * 
@@ -33,7 +39,25 @@ abstract class Logger {
         }
     }
 
+    /**
+     * Same as {@link #logMessage(int, String)}, but the message is only built if
+     * some handler in the chain accepts the level, and then only once.
+     */
+    public void logMessage(int level, Supplier<String> messageSupplier) {
+        for (Logger logger = this; logger != null; logger = logger.nextLogger) {
+            if (logger.level <= level) {
+                logMessage(level, messageSupplier.get());
+                return;
+            }
+        }
+    }
+
     protected abstract void write(String message);
+
+    // True if write prints to System.out, so a batch of writes can hold the console lock once
+    protected boolean writesToConsole() {
+        return false;
+    }
 }
 
 // Concrete Handler: InfoLogger
@@ -46,6 +70,11 @@ class InfoLogger extends Logger {
     protected void write(String message) {
         System.out.println("INFO: " + message);
     }
+
+    @Override
+    protected boolean writesToConsole() {
+        return true;
+    }
 }
 
 // Concrete Handler: WarningLogger
@@ -58,6 +87,11 @@ class WarningLogger extends Logger {
     protected void write(String message) {
         System.out.println("WARNING: " + message);
     }
+
+    @Override
+    protected boolean writesToConsole() {
+        return true;
+    }
 }
 
 // Concrete Handler: ErrorLogger
@@ -70,6 +104,11 @@ class ErrorLogger extends Logger {
     protected void write(String message) {
         System.out.println("ERROR: " + message);
     }
+
+    @Override
+    protected boolean writesToConsole() {
+        return true;
+    }
 }
 
 // Main class to demonstrate the Chain of Responsibility pattern
@@ -86,11 +125,37 @@ public class ChainOfResponsibility {
         return infoLogger;
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         Logger loggerChain = getChainOfLoggers();
 
         loggerChain.logMessage(Logger.INFO, "This is an information message.");
         loggerChain.logMessage(Logger.WARNING, "This is a warning message.");
         loggerChain.logMessage(Logger.ERROR, "This is an error message.");
+
+        // Flatten the chain into a per-level handler table; suppressed messages are never built
+        LoggerChain compiledChain = LoggerChain.compile(getChainOfLoggers());
+        compiledChain.logMessage(Logger.WARNING, "This is a warning message from the compiled chain.");
+        compiledChain.logMessage(0, () -> "Never built: no handler accepts level 0");
+
+        // Same chain with the writes moved to a background thread
+        try (AsyncLogger asyncErrorLogger = new AsyncLogger(new ErrorLogger(Logger.ERROR), 1024,
+                AsyncLogger.WaitStrategy.BLOCKING, AsyncLogger.OverflowPolicy.BLOCK)) {
+            Logger asyncChain = new InfoLogger(Logger.INFO);
+            asyncChain.setNextLogger(asyncErrorLogger);
+            asyncChain.logMessage(Logger.ERROR, "This is an asynchronously written error message.");
+        }
+
+        // Errors also appended to a rolling file without per-message garbage
+        Path logFile = Files.createTempFile("chain", ".log");
+        try (FileLogger fileLogger = new FileLogger.FileLoggerBuilder(Logger.ERROR, "ERROR: ", logFile)
+                .maxFileBytes(1024 * 1024)
+                .forceInterval(Duration.ofSeconds(1))
+                .build()) {
+            Logger fileChain = new InfoLogger(Logger.INFO);
+            fileChain.setNextLogger(fileLogger);
+            fileChain.logMessage(Logger.ERROR, "This error message is also written to a file.");
+        }
+        System.out.print("File " + logFile.getFileName() + ": " + Files.readString(logFile));
+        Files.delete(logFile);
     }
 }
@@ -0,0 +1,287 @@
+package com.paulocanale;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chat Load Client
+ *
+ * Load generator for ChatServer. It opens many connections from a single selector
+ * thread and joins them as users "load-0", "load-1", and so on. The first `senders`
+ * of them then broadcast messages at a fixed total rate, round robin. Every message
+ * carries its System.nanoTime() send time. Every connection reads the broadcasts
+ * it receives and records the end-to-end latency in a histogram, so throughput and
+ * latency percentiles come out of one process on one machine:
+ *
+ *   java -cp target/classes com.paulocanale.ChatServer 7000
+ *   java -cp target/classes com.paulocanale.ChatLoadClient localhost 7000 1000 10 20000 5000
+ *
+ * Before measuring, the first connection sends probe messages until every other
+ * connection has received one. That ensures every user has joined the room.
+ */
+public class ChatLoadClient {
+    private static final String PROBE = "probe";
+    private static final long PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Selector selector;
+    private final List<Client> clients = new ArrayList<>();
+    private final Histogram latencies = new Histogram();
+    private int probed;
+    private long received;
+
+    private ChatLoadClient(InetSocketAddress address, int connections) throws IOException {
+        selector = Selector.open();
+        for (int i = 0; i < connections; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Client client = new Client(channel, "load-" + i);
+            clients.add(client);
+            if (channel.connect(address)) {
+                client.onConnected();
+                channel.register(selector, SelectionKey.OP_READ, client);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, client);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = (args.length > 0) ? args[0] : "localhost";
+        int port = (args.length > 1) ? Integer.parseInt(args[1]) : 7000;
+        int connections = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+        int senders = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+        int messages = (args.length > 4) ? Integer.parseInt(args[4]) : 10000;
+        int ratePerSecond = (args.length > 5) ? Integer.parseInt(args[5]) : 1000;
+        if (senders < 1 || senders > connections) {
+            throw new IllegalArgumentException("senders must be between 1 and the number of connections");
+        }
+        ChatLoadClient load = new ChatLoadClient(new InetSocketAddress(host, port), connections);
+        load.run(senders, messages, ratePerSecond);
+    }
+
+    private void run(int senders, int messages, int ratePerSecond) throws IOException {
+        System.out.println("Connecting " + clients.size() + " users...");
+        long nextProbe = System.nanoTime();
+        // The prober does not receive its own probes
+        while (probed < clients.size() - 1) {
+            // Frames queued before connecting would go out ahead of the name
+            if (clients.get(0).connected && System.nanoTime() >= nextProbe) {
+                clients.get(0).sendFrame(PROBE);
+                nextProbe = System.nanoTime() + PROBE_INTERVAL_NANOS;
+            }
+            poll(TimeUnit.NANOSECONDS.toMillis(PROBE_INTERVAL_NANOS));
+        }
+        // Let late probes arrive before measuring
+        long settle = System.nanoTime() + PROBE_INTERVAL_NANOS;
+        while (System.nanoTime() < settle) {
+            poll(10);
+        }
+        received = 0;
+        latencies.reset();
+
+        // Each message reaches every connection but its sender
+        long expected = (long) messages * (clients.size() - 1);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        System.out.println("Sending " + messages + " messages from " + senders + " senders at "
+                + ratePerSecond + "/s...");
+        long start = System.nanoTime();
+        long nextSend = start;
+        int sent = 0;
+        while (sent < messages) {
+            long now = System.nanoTime();
+            while (sent < messages && now >= nextSend) {
+                clients.get(sent % senders).sendFrame(Long.toString(System.nanoTime()));
+                sent++;
+                nextSend += intervalNanos;
+            }
+            poll(Math.max(0, TimeUnit.NANOSECONDS.toMillis(nextSend - System.nanoTime())));
+        }
+        long sendEnd = System.nanoTime();
+        while (received < expected && System.nanoTime() - sendEnd < DRAIN_TIMEOUT_NANOS) {
+            poll(10);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Delivered %d of %d messages in %.2f s: %.0f messages/s%n", received, expected,
+                elapsed / 1e9, received / (elapsed / 1e9));
+        System.out.printf("Latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                latencies.percentile(50) / 1e6, latencies.percentile(99) / 1e6,
+                latencies.percentile(99.9) / 1e6, latencies.max() / 1e6);
+        for (Client client : clients) {
+            client.channel.close();
+        }
+        selector.close();
+    }
+
+    // Runs one round of the selector loop, waiting at most timeoutMillis (0 polls without waiting)
+    private void poll(long timeoutMillis) throws IOException {
+        if (timeoutMillis > 0) {
+            selector.select(timeoutMillis);
+        } else {
+            selector.selectNow();
+        }
+        for (SelectionKey key : selector.selectedKeys()) {
+            Client client = (Client) key.attachment();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isConnectable()) {
+                client.channel.finishConnect();
+                client.onConnected();
+                key.interestOps(SelectionKey.OP_READ);
+                continue;
+            }
+            if (key.isReadable()) {
+                client.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                client.flush();
+            }
+        }
+        selector.selectedKeys().clear();
+    }
+
+    private final class Client {
+        final SocketChannel channel;
+        final String name;
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(ChatServer.BUFFER_SIZE);
+        // Outgoing frames in fill mode
+        final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(ChatServer.BUFFER_SIZE * 4);
+        boolean connected;
+        boolean sawProbe;
+
+        Client(SocketChannel channel, String name) {
+            this.channel = channel;
+            this.name = name;
+        }
+
+        void onConnected() throws IOException {
+            connected = true;
+            sendFrame(name);
+        }
+
+        void sendFrame(String text) throws IOException {
+            byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+            if (writeBuffer.remaining() < ChatServer.HEADER_SIZE + payload.length) {
+                flush();
+                if (writeBuffer.remaining() < ChatServer.HEADER_SIZE + payload.length) {
+                    throw new IOException("Server is not reading from " + name);
+                }
+            }
+            writeBuffer.putInt(payload.length).put(payload);
+            if (connected) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            writeBuffer.flip();
+            channel.write(writeBuffer);
+            boolean pending = writeBuffer.hasRemaining();
+            writeBuffer.compact();
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null && connected) {
+                key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+
+        void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                throw new IOException("Server closed the connection of " + name);
+            }
+            long now = System.nanoTime();
+            readBuffer.flip();
+            while (readBuffer.remaining() >= ChatServer.HEADER_SIZE) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (readBuffer.remaining() < ChatServer.HEADER_SIZE + length) {
+                    break;
+                }
+                readBuffer.position(readBuffer.position() + ChatServer.HEADER_SIZE);
+                byte[] payload = new byte[length];
+                readBuffer.get(payload);
+                onMessage(new String(payload, StandardCharsets.UTF_8), now);
+            }
+            readBuffer.compact();
+        }
+
+        private void onMessage(String message, long now) {
+            if (message.equals(PROBE)) {
+                if (!sawProbe) {
+                    sawProbe = true;
+                    probed++;
+                }
+                return;
+            }
+            latencies.record(now - Long.parseLong(message));
+            received++;
+        }
+    }
+
+    // Log-linear latency histogram: 32 linear sub-buckets per power of two, so values are within ~3%
+    private static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private final long[] counts = new long[64 << SUB_BUCKET_BITS];
+        private long total;
+        private long max;
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts[index(value)]++;
+            total++;
+            max = Math.max(max, value);
+        }
+
+        void reset() {
+            Arrays.fill(counts, 0);
+            total = 0;
+            max = 0;
+        }
+
+        long max() {
+            return max;
+        }
+
+        // Upper bound of the bucket holding the given percentile
+        long percentile(double percentile) {
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        private static int index(long value) {
+            if (value < (1L << SUB_BUCKET_BITS)) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+            int subBucket = (int) (value >>> (exponent - 1)) & ((1 << SUB_BUCKET_BITS) - 1);
+            return (exponent << SUB_BUCKET_BITS) | subBucket;
+        }
+
+        private static long upperBound(int index) {
+            int exponent = index >>> SUB_BUCKET_BITS;
+            long subBucket = index & ((1 << SUB_BUCKET_BITS) - 1);
+            if (exponent == 0) {
+                return subBucket;
+            }
+            return ((subBucket | (1L << SUB_BUCKET_BITS)) + 1 << (exponent - 1)) - 1;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.paulocanale;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Chat Server
+ *
+ * Serves a ChatMediator over TCP with non-blocking NIO: one selector thread
+ * accepts, reads and writes every connection, so thousands of clients cost
+ * sockets and buffers, not threads. Each connection becomes a RemoteUser of the
+ * room. Messages travel as frames:
+ *
+ *   length   int32, big-endian, number of payload bytes
+ *   payload  UTF-8 text
+ *
+ * The first frame of a connection is the user's name; every later frame is a
+ * message broadcast to the room through the mediator. When the room delivers a
+ * message to a RemoteUser, the frame is appended to the connection's queue of
+ * pooled direct buffers, from any thread, and the selector thread writes it out.
+ * A client that stops reading and lets more than maxPendingBytes pile up is
+ * disconnected instead of exhausting the server's memory.
+ *
+ * All mediator calls (addUser, sendMessage, removeUser) are made from the selector
+ * thread, so a plain ChatRoom can be served as it is.
+ */
+public class ChatServer implements AutoCloseable {
+    static final int HEADER_SIZE = Integer.BYTES;
+    static final int BUFFER_SIZE = 16 * 1024;
+    // A frame must fit a read buffer
+    static final int MAX_FRAME_SIZE = BUFFER_SIZE - HEADER_SIZE;
+    private static final int MAX_POOLED_BUFFERS = 4096;
+
+    private final ChatMediator room;
+    private final InetSocketAddress address;
+    private final long maxPendingBytes;
+    private final Thread.UncaughtExceptionHandler failureHandler;
+    private final BufferPool pool = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    // Connections with frames to write or a pending close, handed over to the selector thread
+    private final Queue<Connection> flushQueue = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public ChatServer(ChatMediator room, InetSocketAddress address, long maxPendingBytes) {
+        this(room, address, maxPendingBytes, Failures.TO_THREAD);
+    }
+
+    /**
+     * @param room            mediator the connected users join
+     * @param address         address to listen on; port 0 picks a free port
+     * @param maxPendingBytes unsent bytes a connection may queue before it is dropped as too slow
+     * @param failureHandler  receives the exception that stops the selector thread while running
+     */
+    public ChatServer(ChatMediator room, InetSocketAddress address, long maxPendingBytes,
+                      Thread.UncaughtExceptionHandler failureHandler) {
+        this.room = room;
+        this.address = address;
+        this.maxPendingBytes = maxPendingBytes;
+        this.failureHandler = Objects.requireNonNull(failureHandler, "failureHandler");
+    }
+
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::run, "chat-server");
+        selectorThread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection ready = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            ready.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            ready.flush();
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+                // After the keys, so frames queued while handling them go out in this round
+                Connection connection;
+                while ((connection = flushQueue.poll()) != null) {
+                    connection.flushQueued.set(false);
+                    connection.flush();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Expected once close() has stopped the server
+            if (running) {
+                Failures.report(failureHandler, e);
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /**
+     * Stops the selector thread and closes every connection.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        serverChannel.close();
+        selector.close();
+    }
+
+    // One client socket with its read buffer and queue of outgoing frames
+    private final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = pool.acquire();
+        // Outgoing bytes in fill mode, oldest first; guarded by this
+        final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        final AtomicBoolean flushQueued = new AtomicBoolean();
+        SelectionKey key;
+        RemoteUser user;
+        long pendingBytes;
+        boolean tooSlow;
+        boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        // Selector thread
+        void read() {
+            try {
+                if (channel.read(readBuffer) < 0) {
+                    close();
+                    return;
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= HEADER_SIZE) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < 0 || length > MAX_FRAME_SIZE) {
+                    close();
+                    return;
+                }
+                if (readBuffer.remaining() < HEADER_SIZE + length) {
+                    break;
+                }
+                readBuffer.position(readBuffer.position() + HEADER_SIZE);
+                byte[] payload = new byte[length];
+                readBuffer.get(payload);
+                onFrame(new String(payload, StandardCharsets.UTF_8));
+                if (closed) {
+                    return;
+                }
+            }
+            readBuffer.compact();
+        }
+
+        private void onFrame(String text) {
+            if (user == null) {
+                RemoteUser joining = new RemoteUser(room, text, this);
+                try {
+                    room.addUser(joining);
+                } catch (IllegalArgumentException e) {
+                    // Name already taken, in a room that refuses duplicates
+                    close();
+                    return;
+                }
+                user = joining;
+            } else {
+                user.send(text);
+            }
+        }
+
+        // Any thread
+        void send(String message) {
+            byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+            synchronized (this) {
+                if (closed || tooSlow) {
+                    return;
+                }
+                if (pendingBytes + HEADER_SIZE + payload.length > maxPendingBytes) {
+                    tooSlow = true;
+                } else {
+                    append(payload);
+                }
+            }
+            if (flushQueued.compareAndSet(false, true)) {
+                flushQueue.add(this);
+                if (Thread.currentThread() != selectorThread) {
+                    selector.wakeup();
+                }
+            }
+        }
+
+        // Writes the frame across as many pooled buffers as it needs
+        private void append(byte[] payload) {
+            ByteBuffer tail = outbound.peekLast();
+            if (tail == null || tail.remaining() < HEADER_SIZE) {
+                tail = pool.acquire();
+                outbound.addLast(tail);
+            }
+            tail.putInt(payload.length);
+            int offset = 0;
+            while (offset < payload.length) {
+                if (!tail.hasRemaining()) {
+                    tail = pool.acquire();
+                    outbound.addLast(tail);
+                }
+                int chunk = Math.min(tail.remaining(), payload.length - offset);
+                tail.put(payload, offset, chunk);
+                offset += chunk;
+            }
+            pendingBytes += HEADER_SIZE + payload.length;
+        }
+
+        // Selector thread: writes until the socket is full, then waits for OP_WRITE
+        synchronized void flush() {
+            if (closed) {
+                return;
+            }
+            if (tooSlow) {
+                close();
+                return;
+            }
+            try {
+                ByteBuffer head;
+                while ((head = outbound.peekFirst()) != null) {
+                    head.flip();
+                    pendingBytes -= channel.write(head);
+                    if (head.hasRemaining()) {
+                        head.compact();
+                        break;
+                    }
+                    pool.release(outbound.pollFirst());
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        // Selector thread
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing more to do with a broken socket
+            }
+            pool.release(readBuffer);
+            for (ByteBuffer buffer : outbound) {
+                pool.release(buffer);
+            }
+            outbound.clear();
+            if (user != null) {
+                room.removeUser(user);
+            }
+        }
+    }
+
+    // Concrete Colleague: a user connected over the network
+    static final class RemoteUser extends User {
+        private final Connection connection;
+
+        private RemoteUser(ChatMediator mediator, String name, Connection connection) {
+            super(mediator, name);
+            this.connection = connection;
+        }
+
+        @Override
+        public void send(String message) {
+            mediator.sendMessage(message, this);
+        }
+
+        @Override
+        public void receive(String message) {
+            connection.send(message);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 7000;
+        ChatServer server = new ChatServer(new ChatRoom(), new InetSocketAddress(port), 8L * 1024 * 1024);
+        server.start();
+        System.out.println("Chat server listening on port " + server.getPort());
+    }
+}
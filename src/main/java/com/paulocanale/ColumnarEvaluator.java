@@ -0,0 +1,329 @@
+package com.paulocanale;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Columnar Evaluator
+ *
+ * Applies one Expression to whole columns of variable values at once. Rows are
+ * processed in chunks small enough for the temporaries to stay in cache, and each
+ * operator runs as a tight loop over the chunk that the JIT can vectorize.
+ * Large inputs are split across cores with fork-join.
+ *
+ * The tree is flattened once into a register program. Of two operands, the one
+ * that needs more registers is evaluated first (Sethi-Ullman order), and constants
+ * and columns on the right are read in place, so the left-deep chains the parser
+ * builds run in a single register however long they are. Neither flattening nor
+ * running the program recurses, and each worker thread keeps its registers.
+ */
+final class ColumnarEvaluator {
+    // Rows per chunk: scratch buffers of this size stay in L1/L2
+    static final int CHUNK_SIZE = 2048;
+    // Below this many rows a fork-join split costs more than it saves
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    // Program opcodes; each instruction is (opcode, register, operand)
+    private static final int CONST = 0;
+    private static final int LOAD = 1;
+    private static final int ADD_CONST = 2;
+    private static final int ADD_COLUMN = 3;
+    private static final int SUB_COLUMN = 4;
+    private static final int ADD_REGISTER = 5;
+    private static final int SUB_REGISTER = 6;
+    // register = operand register - register
+    private static final int REVERSE_SUB_REGISTER = 7;
+
+    private final BoundExpression expression;
+    private final int[] program;
+    // Registers beyond register 0, which is the output itself
+    private final ThreadLocal<int[][]> registers;
+
+    /**
+     * @throws IllegalArgumentException if the expression cannot be bound, see {@link BoundExpression#bind(Expression)}
+     */
+    public ColumnarEvaluator(Expression expression) {
+        this.expression = (expression instanceof BoundExpression bound) ? bound : BoundExpression.bind(expression);
+        Expression root = this.expression.getExpression();
+        Map<Expression, Integer> needs = registerNeeds(root);
+        this.program = compile(root, needs);
+        int extraRegisters = needs.get(root) - 1;
+        this.registers = ThreadLocal.withInitial(() -> new int[extraRegisters][CHUNK_SIZE]);
+    }
+
+    /**
+     * Evaluates the expression for every row, taking one column per variable name.
+     * Variables without a column evaluate to 0, as in the Map based interpret.
+     *
+     * @param columns column of values per variable name
+     * @param out     receives one result per row; its length is the row count
+     */
+    public void evaluate(Map<String, int[]> columns, int[] out) {
+        evaluate(columnsBySlot(columns), out);
+    }
+
+    /**
+     * Evaluates the expression for every row.
+     *
+     * @param columns column of values per slot, see {@link BoundExpression#slotOf(String)}
+     * @param out     receives one result per row; its length is the row count
+     */
+    public void evaluate(int[][] columns, int[] out) {
+        checkColumns(columns, out.length);
+        evaluateRange(columns, out, 0, out.length);
+    }
+
+    public void evaluateParallel(Map<String, int[]> columns, int[] out) {
+        evaluateParallel(columnsBySlot(columns), out, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as {@link #evaluate(int[][], int[])}, splitting large inputs across the pool.
+     */
+    public void evaluateParallel(int[][] columns, int[] out, ForkJoinPool pool) {
+        checkColumns(columns, out.length);
+        if (out.length <= PARALLEL_THRESHOLD) {
+            evaluateRange(columns, out, 0, out.length);
+        } else {
+            pool.invoke(new RangeTask(columns, out, 0, out.length));
+        }
+    }
+
+    private int[][] columnsBySlot(Map<String, int[]> columns) {
+        String[] names = expression.getSlotNames();
+        int[][] bySlot = new int[names.length][];
+        for (int slot = 0; slot < names.length; slot++) {
+            bySlot[slot] = columns.get(names[slot]);
+        }
+        return bySlot;
+    }
+
+    private void checkColumns(int[][] columns, int rows) {
+        if (columns.length < expression.getSlotCount()) {
+            throw new IllegalArgumentException("Expected " + expression.getSlotCount() + " columns, got " + columns.length);
+        }
+        for (int slot = 0; slot < expression.getSlotCount(); slot++) {
+            if (columns[slot] != null && columns[slot].length < rows) {
+                throw new IllegalArgumentException("Column " + expression.getSlotNames()[slot] + " has "
+                        + columns[slot].length + " rows, expected " + rows);
+            }
+        }
+    }
+
+    private void evaluateRange(int[][] columns, int[] out, int from, int to) {
+        int[][] registers = this.registers.get();
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            run(columns, start, Math.min(CHUNK_SIZE, to - start), out, registers);
+        }
+    }
+
+    // Runs the program for rows [row, row + length). Register 0 is out at offset
+    // row, register r > 0 is registers[r - 1] at offset 0.
+    private void run(int[][] columns, int row, int length, int[] out, int[][] registers) {
+        int[] code = program;
+        for (int pc = 0; pc < code.length; pc += 3) {
+            int register = code[pc + 1];
+            int operand = code[pc + 2];
+            int[] dest = (register == 0) ? out : registers[register - 1];
+            int offset = (register == 0) ? row : 0;
+            switch (code[pc]) {
+                case CONST -> Arrays.fill(dest, offset, offset + length, operand);
+                case LOAD -> {
+                    int[] column = columns[operand];
+                    if (column == null) {
+                        Arrays.fill(dest, offset, offset + length, 0);
+                    } else {
+                        System.arraycopy(column, row, dest, offset, length);
+                    }
+                }
+                case ADD_CONST -> {
+                    for (int i = 0; i < length; i++) {
+                        dest[offset + i] += operand;
+                    }
+                }
+                case ADD_COLUMN -> {
+                    // A missing column holds zeros
+                    int[] column = columns[operand];
+                    if (column != null) {
+                        for (int i = 0; i < length; i++) {
+                            dest[offset + i] += column[row + i];
+                        }
+                    }
+                }
+                case SUB_COLUMN -> {
+                    int[] column = columns[operand];
+                    if (column != null) {
+                        for (int i = 0; i < length; i++) {
+                            dest[offset + i] -= column[row + i];
+                        }
+                    }
+                }
+                case ADD_REGISTER -> {
+                    int[] source = registers[operand - 1];
+                    for (int i = 0; i < length; i++) {
+                        dest[offset + i] += source[i];
+                    }
+                }
+                case SUB_REGISTER -> {
+                    int[] source = registers[operand - 1];
+                    for (int i = 0; i < length; i++) {
+                        dest[offset + i] -= source[i];
+                    }
+                }
+                default -> {
+                    int[] source = registers[operand - 1];
+                    for (int i = 0; i < length; i++) {
+                        dest[offset + i] = source[i] - dest[offset + i];
+                    }
+                }
+            }
+        }
+    }
+
+    // Registers each node needs (its Sethi-Ullman number), computed bottom-up with an
+    // explicit stack. A constant or column right operand is read in place and needs
+    // no register of its own.
+    private static Map<Expression, Integer> registerNeeds(Expression root) {
+        Map<Expression, Integer> needs = new IdentityHashMap<>();
+        Deque<Expression> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Expression node = stack.peek();
+            if (needs.containsKey(node)) {
+                stack.pop();
+            } else if (isLeaf(node)) {
+                needs.put(stack.pop(), 1);
+            } else if (!needs.containsKey(left(node))) {
+                stack.push(left(node));
+            } else if (!isLeaf(right(node)) && !needs.containsKey(right(node))) {
+                stack.push(right(node));
+            } else {
+                int left = needs.get(left(node));
+                int right = isLeaf(right(node)) ? 0 : needs.get(right(node));
+                needs.put(stack.pop(), (left == right) ? left + 1 : Math.max(left, right));
+            }
+        }
+        return needs;
+    }
+
+    // Flattens the tree into a program that leaves its value in register 0
+    private static int[] compile(Expression root, Map<Expression, Integer> needs) {
+        int[] code = new int[48];
+        int size = 0;
+        // Steps still to take, last pushed first: evaluate a node or emit an instruction
+        Deque<Step> steps = new ArrayDeque<>();
+        steps.push(new Step(root, 0, null));
+        while (!steps.isEmpty()) {
+            Step step = steps.pop();
+            int[] instruction = step.instruction;
+            if (instruction == null) {
+                instruction = leafInstruction(step.node, step.register);
+            }
+            if (instruction != null) {
+                if (size + 3 > code.length) {
+                    code = Arrays.copyOf(code, code.length * 2);
+                }
+                System.arraycopy(instruction, 0, code, size, 3);
+                size += 3;
+                continue;
+            }
+            Expression node = step.node;
+            int register = step.register;
+            boolean addition = node instanceof Addition;
+            Expression left = left(node);
+            Expression right = right(node);
+            // Pushed in reverse: operands first, then the instruction combining them
+            if (right instanceof Number number) {
+                int value = addition ? number.getNumber() : -number.getNumber();
+                steps.push(new Step(null, register, new int[]{ADD_CONST, register, value}));
+                steps.push(new Step(left, register, null));
+            } else if (right instanceof Variable variable) {
+                int opcode = addition ? ADD_COLUMN : SUB_COLUMN;
+                steps.push(new Step(null, register, new int[]{opcode, register, variable.getSlot()}));
+                steps.push(new Step(left, register, null));
+            } else if (needs.get(left) >= needs.get(right)) {
+                int opcode = addition ? ADD_REGISTER : SUB_REGISTER;
+                steps.push(new Step(null, register, new int[]{opcode, register, register + 1}));
+                steps.push(new Step(right, register + 1, null));
+                steps.push(new Step(left, register, null));
+            } else {
+                int opcode = addition ? ADD_REGISTER : REVERSE_SUB_REGISTER;
+                steps.push(new Step(null, register, new int[]{opcode, register, register + 1}));
+                steps.push(new Step(left, register + 1, null));
+                steps.push(new Step(right, register, null));
+            }
+        }
+        return Arrays.copyOf(code, size);
+    }
+
+    // Instruction loading a leaf into the register, or null for an operator node
+    private static int[] leafInstruction(Expression node, int register) {
+        if (node instanceof Number number) {
+            return new int[]{CONST, register, number.getNumber()};
+        }
+        if (node instanceof Variable variable) {
+            return new int[]{LOAD, register, variable.getSlot()};
+        }
+        return null;
+    }
+
+    private static boolean isLeaf(Expression node) {
+        return node instanceof Number || node instanceof Variable;
+    }
+
+    // Binding admits no node other than Number, Variable, Addition and Subtraction
+    private static Expression left(Expression node) {
+        return (node instanceof Addition addition) ? addition.getLeftExpression()
+                : ((Subtraction) node).getLeftExpression();
+    }
+
+    private static Expression right(Expression node) {
+        return (node instanceof Addition addition) ? addition.getRightExpression()
+                : ((Subtraction) node).getRightExpression();
+    }
+
+    // Node to evaluate into a register, or an instruction to emit
+    private static final class Step {
+        final Expression node;
+        final int register;
+        final int[] instruction;
+
+        Step(Expression node, int register, int[] instruction) {
+            this.node = node;
+            this.register = register;
+            this.instruction = instruction;
+        }
+    }
+
+    // Fork-join task splitting a row range in halves down to PARALLEL_THRESHOLD rows
+    @SuppressWarnings("serial") // Never serialized
+    private final class RangeTask extends RecursiveAction {
+        private final int[][] columns;
+        private final int[] out;
+        private final int from;
+        private final int to;
+
+        RangeTask(int[][] columns, int[] out, int from, int to) {
+            this.columns = columns;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                evaluateRange(columns, out, from, to);
+                return;
+            }
+            // Split on a chunk boundary so no chunk is shared between tasks
+            int middle = from + ((to - from) / 2 / CHUNK_SIZE) * CHUNK_SIZE;
+            invokeAll(new RangeTask(columns, out, from, middle), new RangeTask(columns, out, middle, to));
+        }
+    }
+}
@@ -1,7 +1,19 @@
 package com.paulocanale;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Command Pattern Example
@@ -18,27 +30,54 @@ import java.util.List;
 // Command interface
 interface CommandPattern {
     void execute();
+
+    // Object the command acts on; asynchronous commands for one receiver run in submission order
+    default Object getReceiver() {
+        return this;
+    }
+}
+
+// Command that sets its receiver to a fixed state whatever the state was before,
+// so a later StateCommand for the same receiver makes it redundant
+interface StateCommand extends CommandPattern {
 }
 
 // Receiver class: Light
 class Light {
+    private boolean on;
+
     public void turnOn() {
+        on = true;
         System.out.println("Light is ON");
     }
 
     public void turnOff() {
+        on = false;
         System.out.println("Light is OFF");
     }
+
+    public boolean isOn() {
+        return on;
+    }
 }
 
 // Concrete Command: TurnOnCommand
-class TurnOnCommand implements CommandPattern {
+class TurnOnCommand implements StateCommand {
     private Light light;
 
     public TurnOnCommand(Light light) {
         this.light = light;
     }
 
+    public Light getLight() {
+        return light;
+    }
+
+    @Override
+    public Object getReceiver() {
+        return light;
+    }
+
     @Override
     public void execute() {
         light.turnOn();
@@ -46,13 +85,22 @@ class TurnOnCommand implements CommandPattern {
 }
 
 // Concrete Command: TurnOffCommand
-class TurnOffCommand implements CommandPattern {
+class TurnOffCommand implements StateCommand {
     private Light light;
 
     public TurnOffCommand(Light light) {
         this.light = light;
     }
 
+    public Light getLight() {
+        return light;
+    }
+
+    @Override
+    public Object getReceiver() {
+        return light;
+    }
+
     @Override
     public void execute() {
         light.turnOff();
@@ -62,16 +110,142 @@ class TurnOffCommand implements CommandPattern {
 // Invoker class: RemoteControl
 class RemoteControl {
     private List<CommandPattern> commandHistory = new ArrayList<>();
+    // Durable history replacing commandHistory, or null
+    private final CommandJournal journal;
+    // Bounded undo/redo history replacing commandHistory, or null
+    private final CompactCommandHistory history;
+    // Runs submitAsync commands, serially per receiver
+    private final StripedExecutor workers;
+
+    public RemoteControl() {
+        this(null, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param workers pool that runs asynchronously submitted commands
+     */
+    public RemoteControl(Executor workers) {
+        this(null, null, workers);
+    }
+
+    /**
+     * Records submitted commands in the journal instead of in memory; submit returns
+     * once the command is durable. Replaying the journal rebuilds the receivers' state.
+     */
+    public RemoteControl(CommandJournal journal) {
+        this(journal, null, ForkJoinPool.commonPool());
+    }
+
+    public RemoteControl(CommandJournal journal, Executor workers) {
+        this(journal, null, workers);
+    }
+
+    /**
+     * Records submitted commands in the compact history, which makes them undoable.
+     * The history runs one command, undo or redo at a time, so asynchronous submits
+     * to this remote do not run in parallel.
+     */
+    public RemoteControl(CompactCommandHistory history) {
+        this(null, history, ForkJoinPool.commonPool());
+    }
+
+    private RemoteControl(CommandJournal journal, CompactCommandHistory history, Executor workers) {
+        if (journal != null || history != null) {
+            this.commandHistory = null;
+        }
+        this.journal = journal;
+        this.history = history;
+        this.workers = new StripedExecutor(workers, 4 * Runtime.getRuntime().availableProcessors());
+    }
 
     public void submit(CommandPattern command) {
-        command.execute();
-        commandHistory.add(command);
+        if (history != null) {
+            history.execute(command);
+            return;
+        }
+        if (journal == null) {
+            command.execute();
+            synchronized (this) {
+                commandHistory.add(command);
+            }
+            return;
+        }
+        long sequence;
+        // Journal order must match execution order for replay to end in the same state
+        synchronized (this) {
+            command.execute();
+            sequence = journal.append(command);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Reverts the most recent command that has not been undone.
+     *
+     * @return false if there is nothing left to undo
+     * @throws IllegalStateException if the remote has no compact history
+     */
+    public boolean undo() {
+        return compactHistory().undo();
+    }
+
+    /**
+     * Executes the most recently undone command again.
+     *
+     * @return false if there is nothing to redo
+     * @throws IllegalStateException if the remote has no compact history
+     */
+    public boolean redo() {
+        return compactHistory().redo();
+    }
+
+    private CompactCommandHistory compactHistory() {
+        if (history == null) {
+            throw new IllegalStateException("Undo needs a RemoteControl with a CompactCommandHistory");
+        }
+        return history;
+    }
+
+    /**
+     * Runs the command on the worker pool. Commands for the same receiver run one
+     * at a time in the order they were submitted; commands for different receivers
+     * run in parallel. The future completes once the command has run and, with a
+     * journal, is durable, or exceptionally with whatever the command threw.
+     *
+     * Ordering only holds among asynchronous submissions: do not submit commands
+     * for the same receiver through submit and submitAsync at the same time.
+     */
+    public CompletableFuture<Void> submitAsync(CommandPattern command) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        workers.execute(command.getReceiver(), () -> {
+            try {
+                if (history != null) {
+                    history.execute(command);
+                    done.complete(null);
+                    return;
+                }
+                command.execute();
+                // The stripe keeps each receiver's records in execution order; records
+                // for different receivers may interleave freely since they commute
+                if (journal == null) {
+                    synchronized (this) {
+                        commandHistory.add(command);
+                    }
+                } else {
+                    journal.write(command);
+                }
+                done.complete(null);
+            } catch (Throwable t) {
+                done.completeExceptionally(t);
+            }
+        });
+        return done;
     }
 }
 
 // Main class to demonstrate the Command pattern
 public class Command {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         Light light = new Light();
 
         // Create commands
@@ -84,5 +258,84 @@ public class Command {
         // Execute commands
         remote.submit(turnOn);   // Output: Light is ON
         remote.submit(turnOff);  // Output: Light is OFF
+
+        // Asynchronous submits: each light's commands run in order, different lights in parallel
+        Light kitchenLight = new Light();
+        Light porchLight = new Light();
+        CompletableFuture.allOf(
+                remote.submitAsync(new TurnOnCommand(kitchenLight)),
+                remote.submitAsync(new TurnOnCommand(porchLight)),
+                remote.submitAsync(new TurnOffCommand(kitchenLight))).join();
+        System.out.println("Kitchen light is " + (kitchenLight.isOn() ? "ON" : "OFF")
+                + ", porch light is " + (porchLight.isOn() ? "ON" : "OFF"));
+
+        // Batched remote: a burst of switching collapses to the final state of each light
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try (CommandBatcher batcher = new CommandBatcher(remote, 64, Duration.ofMillis(5), scheduler)) {
+            for (int i = 0; i < 10; i++) {
+                batcher.submit(new TurnOnCommand(kitchenLight));
+                batcher.submit(new TurnOffCommand(kitchenLight));
+            }
+            batcher.submit(new TurnOnCommand(porchLight));
+            batcher.flush();
+            System.out.println("Batched " + batcher.getReceived() + " commands, executed " + batcher.getExecuted()
+                    + ", elided " + batcher.getElided());
+        }
+        scheduler.shutdown();
+
+        // Undoable remote: the history keeps 5 bytes per command instead of the command
+        Light deskLight = new Light();
+        RemoteControl undoableRemote = new RemoteControl(
+                new CompactCommandHistory(new CommandCodec().register(0, deskLight), 1024));
+        undoableRemote.submit(new TurnOnCommand(deskLight));
+        undoableRemote.submit(new TurnOnCommand(deskLight));  // Already on: undoing it changes nothing
+        undoableRemote.submit(new TurnOffCommand(deskLight));
+        undoableRemote.undo();  // Output: Light is ON
+        undoableRemote.undo();
+        System.out.println("After two undos the desk light is " + (deskLight.isOn() ? "ON" : "OFF"));
+        undoableRemote.redo();
+        undoableRemote.redo();  // Output: Light is OFF
+
+        journalDemo();
+    }
+
+    // Journaled remote: the light's state survives a restart, including one that cut
+    // a record in half. Segments of 8 records make the journal roll over on the way.
+    private static void journalDemo() throws IOException {
+        int segmentSize = 8 * Long.BYTES;
+        Path journalDirectory = Files.createTempDirectory("commands");
+        Light hallLight = new Light();
+        try (CommandJournal journal = CommandJournal.open(journalDirectory, new CommandCodec().register(0, hallLight),
+                segmentSize)) {
+            RemoteControl journaledRemote = new RemoteControl(journal);
+            for (int i = 0; i < 10; i++) {
+                journaledRemote.submit(new TurnOffCommand(hallLight));
+                journaledRemote.submit(new TurnOnCommand(hallLight));
+            }
+        }
+        // Simulate a crash during the next append: a torn record after the 20 whole ones
+        try (FileChannel segment = FileChannel.open(journalDirectory.resolve(String.format("%020d.journal", 16)),
+                StandardOpenOption.WRITE)) {
+            segment.write(ByteBuffer.wrap(new byte[]{CommandCodec.TURN_OFF, 0, 0, 0x7F}), 4 * Long.BYTES);
+        }
+
+        System.out.println("Restarting and replaying the journal:");
+        Light restoredLight = new Light();
+        CommandCodec codec = new CommandCodec().register(0, restoredLight);
+        try (CommandJournal journal = CommandJournal.open(journalDirectory, codec, segmentSize)) {
+            long replayed = journal.replay(CommandPattern::execute);
+            System.out.println("Replayed " + replayed + " commands, light is " + (restoredLight.isOn() ? "ON" : "OFF"));
+        }
+        try {
+            CommandJournal.open(journalDirectory, codec, segmentSize / 2).close();
+        } catch (IOException e) {
+            System.out.println("Reopening with another segment size: " + e.getMessage());
+        }
+        try (var files = Files.list(journalDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(journalDirectory);
     }
 }
@@ -0,0 +1,216 @@
+package com.paulocanale;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command Batcher
+ *
+ * Batching stage in front of a RemoteControl. Submitted commands are gathered
+ * until the batch holds maxBatch commands or the first of them has waited
+ * maxDelay. Then the batch is reduced and the rest is submitted to the remote, in
+ * order.
+ *
+ * Reduction drops every StateCommand that a later StateCommand for the same
+ * receiver overrides, so on, off, on for one light runs only the last on. Any
+ * other command for a receiver is a barrier. It may depend on the state the
+ * commands before it left behind, so those are kept.
+ *
+ * Batches run one at a time, in the order they were gathered: a full batch runs
+ * on the thread whose command filled it, and an expired one runs on the scheduler.
+ * A command that throws does not stop the rest of its batch. The first failure is
+ * rethrown by flush once the batch has run, or, for an expired batch, passed to
+ * the failure handler, see Failures.
+ */
+final class CommandBatcher implements AutoCloseable {
+    private final RemoteControl remote;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Thread.UncaughtExceptionHandler failureHandler;
+
+    // Batch being gathered and its expiry timer, guarded by this
+    private List<CommandPattern> batch = new ArrayList<>();
+    private ScheduledFuture<?> timer;
+    private boolean closed;
+
+    // Held while taking and running a batch, so batches run in order
+    private final Object flushLock = new Object();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong elided = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public CommandBatcher(RemoteControl remote, int maxBatch, Duration maxDelay, ScheduledExecutorService scheduler) {
+        this(remote, maxBatch, maxDelay, scheduler, Failures.TO_THREAD);
+    }
+
+    /**
+     * @param remote         remote the reduced batches are submitted to
+     * @param maxBatch       commands that trigger a flush right away
+     * @param maxDelay       longest a command waits for its batch to fill up
+     * @param scheduler      runs the flushes of batches that expire
+     * @param failureHandler receives the failures of batches flushed on the scheduler
+     */
+    public CommandBatcher(RemoteControl remote, int maxBatch, Duration maxDelay, ScheduledExecutorService scheduler,
+                          Thread.UncaughtExceptionHandler failureHandler) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("maxBatch must be positive");
+        }
+        if (maxDelay.isNegative()) {
+            throw new IllegalArgumentException("maxDelay must not be negative");
+        }
+        this.remote = remote;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.scheduler = scheduler;
+        this.failureHandler = Objects.requireNonNull(failureHandler, "failureHandler");
+    }
+
+    public void submit(CommandPattern command) {
+        boolean full;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Batcher is closed");
+            }
+            batch.add(command);
+            received.incrementAndGet();
+            full = batch.size() >= maxBatch;
+            if (!full && timer == null) {
+                timer = scheduler.schedule(this::flushExpired, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Reduces and runs the commands gathered so far.
+     *
+     * @throws RuntimeException the first exception a command of the batch threw,
+     *                          with any later ones suppressed
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<CommandPattern> taken;
+            synchronized (this) {
+                if (batch.isEmpty()) {
+                    return;
+                }
+                taken = batch;
+                batch = new ArrayList<>();
+                if (timer != null) {
+                    timer.cancel(false);
+                    timer = null;
+                }
+            }
+            List<CommandPattern> reduced = reduce(taken);
+            batches.incrementAndGet();
+            elided.addAndGet(taken.size() - reduced.size());
+            RuntimeException failure = null;
+            for (CommandPattern command : reduced) {
+                try {
+                    remote.submit(command);
+                    executed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void flushExpired() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Nobody waits on the scheduler; keep it alive for the next batch
+            Failures.report(failureHandler, e);
+        }
+    }
+
+    /**
+     * @return the commands of the batch that still matter, in their original order
+     */
+    static List<CommandPattern> reduce(List<CommandPattern> batch) {
+        // Receivers whose state a later StateCommand in the batch sets anyway
+        Set<Object> overridden = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<CommandPattern> kept = new ArrayList<>(batch.size());
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            CommandPattern command = batch.get(i);
+            Object receiver = command.getReceiver();
+            if (command instanceof StateCommand) {
+                if (!overridden.add(receiver)) {
+                    continue;
+                }
+            } else {
+                overridden.remove(receiver);
+            }
+            kept.add(command);
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    /**
+     * @return commands submitted to the batcher
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * @return commands the remote ran without throwing
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * @return commands dropped because a later command overrode them
+     */
+    public long getElided() {
+        return elided.get();
+    }
+
+    /**
+     * @return commands that threw when submitted to the remote
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Runs what is left of the current batch; later submits are rejected.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+    }
+}
@@ -0,0 +1,114 @@
+package com.paulocanale;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command Codec
+ *
+ * Encodes commands as 8-byte records, so they can be journaled and replayed
+ * without serializing objects. Receivers are referred to by ids registered up
+ * front; register them with the same ids on every start for replay to rebuild
+ * the same receivers. A record, as a little-endian long:
+ *
+ *   bits  0..7   opcode (never 0, so an all-zero record marks unused space)
+ *   bits  8..15  check byte over opcode and receiver id, to detect torn writes
+ *   bits 16..31  reserved, 0
+ *   bits 32..63  receiver id
+ */
+final class CommandCodec {
+    static final int TURN_ON = 1;
+    static final int TURN_OFF = 2;
+
+    private final List<Light> lights = new ArrayList<>();
+    private final Map<Light, Integer> ids = new IdentityHashMap<>();
+
+    public CommandCodec register(int id, Light light) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Receiver id must not be negative: " + id);
+        }
+        if (ids.containsKey(light) || (id < lights.size() && lights.get(id) != null)) {
+            throw new IllegalArgumentException("Receiver or id " + id + " is already registered");
+        }
+        while (lights.size() <= id) {
+            lights.add(null);
+        }
+        lights.set(id, light);
+        ids.put(light, id);
+        return this;
+    }
+
+    public long encode(CommandPattern command) {
+        if (command instanceof TurnOnCommand) {
+            return record(TURN_ON, idOf(((TurnOnCommand) command).getLight()));
+        }
+        if (command instanceof TurnOffCommand) {
+            return record(TURN_OFF, idOf(((TurnOffCommand) command).getLight()));
+        }
+        throw new IllegalArgumentException("No opcode for " + command.getClass().getSimpleName());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the record is invalid or names an unknown receiver
+     */
+    public CommandPattern decode(long record) {
+        if (!isValid(record)) {
+            throw new IllegalArgumentException("Invalid command record " + Long.toHexString(record));
+        }
+        Light light = lightOf(receiverId(record));
+        return (opcode(record) == TURN_ON) ? new TurnOnCommand(light) : new TurnOffCommand(light);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no receiver is registered with the id
+     */
+    public Light lightOf(int receiverId) {
+        Light light = (receiverId >= 0 && receiverId < lights.size()) ? lights.get(receiverId) : null;
+        if (light == null) {
+            throw new IllegalArgumentException("Unknown receiver id " + receiverId);
+        }
+        return light;
+    }
+
+    /**
+     * @return true if the record is a whole record with a known opcode
+     */
+    static boolean isValid(long record) {
+        int opcode = opcode(record);
+        return (opcode == TURN_ON || opcode == TURN_OFF)
+                && ((record >>> 8) & 0xFF) == check(opcode, receiverId(record))
+                && ((record >>> 16) & 0xFFFF) == 0;
+    }
+
+    static long record(int opcode, int receiverId) {
+        return opcode | ((long) check(opcode, receiverId) << 8) | ((long) receiverId << 32);
+    }
+
+    static int opcode(long record) {
+        return (int) (record & 0xFF);
+    }
+
+    static int receiverId(long record) {
+        return (int) (record >>> 32);
+    }
+
+    // Opcode of the command that reverts the given one
+    static int inverse(int opcode) {
+        return (opcode == TURN_ON) ? TURN_OFF : TURN_ON;
+    }
+
+    private int idOf(Light light) {
+        Integer id = ids.get(light);
+        if (id == null) {
+            throw new IllegalArgumentException("Receiver is not registered");
+        }
+        return id;
+    }
+
+    private static int check(int opcode, int receiverId) {
+        int h = (opcode * 0x9E3779B1) ^ (receiverId * 0x85EBCA77);
+        return (h ^ (h >>> 16) ^ (h >>> 8) ^ 0xA5) & 0xFF;
+    }
+}
@@ -0,0 +1,269 @@
+package com.paulocanale;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Command Journal
+ *
+ * Durable, append-only log of commands. Commands are stored as 8-byte
+ * CommandCodec records in fixed-size segment files that are memory-mapped, so an
+ * append is a single store into the page cache. A segment is named after the
+ * sequence number of its first record (00000000000000000000.journal, ...). When
+ * it is full, the journal forces it and rolls over to a new one.
+ *
+ * Appending and making durable are separate steps: append places the record and
+ * returns its sequence number, and awaitDurable waits until that record has been
+ * forced to storage. Forces use group commit. The first waiter becomes the leader
+ * and forces everything appended so far in one call. Threads that append in the
+ * meantime wait behind it and usually find their records already forced when
+ * their turn comes, so one force covers many concurrent submitters.
+ *
+ * Replay reads the segments sequentially and stops at the first empty or torn
+ * record; appends resume there, with any leftover bytes of a torn tail cleared.
+ *
+ * Segment files are created at their full size, which fixes the segment size of a
+ * journal: sequence numbers are derived from it, so open rejects a size that does
+ * not match the existing files.
+ */
+final class CommandJournal implements Closeable {
+    private static final String SUFFIX = ".journal";
+    private static final int RECORD_SIZE = Long.BYTES;
+
+    private final Path directory;
+    private final CommandCodec codec;
+    private final int segmentSize;
+
+    // Append state, guarded by this
+    private Segment segment;
+    private long nextSequence;
+    private boolean closed;
+
+    // Group commit state, guarded by commitLock
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private Segment forcedSegment;
+    private int forcedPosition;
+    private volatile long durableSequence;
+
+    private CommandJournal(Path directory, CommandCodec codec, int segmentSize) {
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal in the directory, creating it if needed, and positions it
+     * after the last valid record.
+     *
+     * @param segmentSize bytes per segment file, a positive multiple of 8; must match
+     *                    the size the journal was created with
+     * @throws IOException if existing segments have a different size
+     */
+    public static CommandJournal open(Path directory, CommandCodec codec, int segmentSize) throws IOException {
+        if (segmentSize <= 0 || segmentSize % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("segmentSize must be a positive multiple of " + RECORD_SIZE);
+        }
+        Files.createDirectories(directory);
+        CommandJournal journal = new CommandJournal(directory, codec, segmentSize);
+        List<Long> starts = journal.segmentStarts();
+        for (int i = 0; i < starts.size(); i++) {
+            Path path = journal.segmentPath(starts.get(i));
+            long size = Files.size(path);
+            // An empty last segment was being created when the process stopped; map fills it in
+            boolean creating = (size == 0 && i == starts.size() - 1);
+            if (size != segmentSize && !creating) {
+                throw new IOException("Journal segment " + path + " has " + size + " bytes, expected "
+                        + segmentSize);
+            }
+        }
+        long start = starts.isEmpty() ? 0 : starts.get(starts.size() - 1);
+        Segment last = journal.map(start);
+        int position = 0;
+        while (position < segmentSize && CommandCodec.isValid(last.buffer.getLong(position))) {
+            position += RECORD_SIZE;
+        }
+        if (position < segmentSize && last.buffer.getLong(position) != 0) {
+            // Torn tail: clear it so stale records past it can never be replayed
+            for (int offset = position; offset < segmentSize; offset += RECORD_SIZE) {
+                last.buffer.putLong(offset, 0);
+            }
+            last.buffer.force();
+        }
+        last.position = position;
+        journal.segment = last;
+        journal.nextSequence = start + position / RECORD_SIZE;
+        journal.forcedSegment = last;
+        journal.forcedPosition = position;
+        journal.durableSequence = journal.nextSequence;
+        return journal;
+    }
+
+    /**
+     * Writes the command's record to the journal.
+     *
+     * @return the record's sequence number, to pass to awaitDurable
+     */
+    public synchronized long append(CommandPattern command) {
+        long record = codec.encode(command);
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (segment.position == segmentSize) {
+            roll();
+        }
+        segment.buffer.putLong(segment.position, record);
+        segment.position += RECORD_SIZE;
+        return nextSequence++;
+    }
+
+    private void roll() {
+        // Everything in the full segment becomes durable before anything in the next one
+        segment.buffer.force();
+        try {
+            segment = map(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create journal segment in " + directory, e);
+        }
+    }
+
+    /**
+     * Returns once the record with the given sequence number, and every record
+     * before it, has been forced to storage.
+     */
+    public void awaitDurable(long sequence) {
+        if (sequence < durableSequence) {
+            return;
+        }
+        commitLock.lock();
+        try {
+            if (sequence < durableSequence) {
+                // A leader forced it while this thread was waiting
+                return;
+            }
+            Segment current;
+            int position;
+            long end;
+            synchronized (this) {
+                current = segment;
+                position = current.position;
+                end = nextSequence;
+            }
+            // Earlier segments were forced when they filled up
+            int from = (current == forcedSegment) ? forcedPosition : 0;
+            if (position > from) {
+                current.buffer.force(from, position - from);
+            }
+            forcedSegment = current;
+            forcedPosition = position;
+            durableSequence = end;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Appends the command and waits until it is durable.
+     */
+    public void write(CommandPattern command) {
+        awaitDurable(append(command));
+    }
+
+    /**
+     * Decodes every journaled command in order and passes it to the consumer.
+     *
+     * @return the number of commands replayed
+     */
+    public long replay(Consumer<CommandPattern> consumer) throws IOException {
+        long end;
+        synchronized (this) {
+            end = nextSequence;
+        }
+        long count = 0;
+        for (long start : segmentStarts()) {
+            if (start >= end) {
+                break;
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(start), StandardOpenOption.READ)) {
+                int length = (int) Math.min(channel.size(), (end - start) * RECORD_SIZE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                for (int position = 0; position < length; position += RECORD_SIZE) {
+                    long record = buffer.getLong(position);
+                    if (!CommandCodec.isValid(record)) {
+                        break;
+                    }
+                    consumer.accept(codec.decode(record));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the sequence number the next command will get
+     */
+    public synchronized long size() {
+        return nextSequence;
+    }
+
+    /**
+     * Forces every appended record and closes the journal.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            segment.buffer.force();
+            durableSequence = nextSequence;
+        }
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> starts.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        starts.sort(null);
+        return starts;
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve(String.format("%020d%s", start, SUFFIX));
+    }
+
+    // Maps a segment read-write, creating it zero-filled at full size if new
+    private Segment map(long start) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(start), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mappings stay valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new Segment(buffer);
+        }
+    }
+
+    private static final class Segment {
+        final MappedByteBuffer buffer;
+        // Next free byte; written under the journal lock
+        int position;
+
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.paulocanale;
+
+/**
+ * Compact Command History
+ *
+ * Bounded undo/redo history that keeps commands as CommandCodec opcodes and
+ * receiver ids in two primitive rings instead of as objects: 5 bytes per command,
+ * and no references that keep receivers or commands alive. When the ring is full,
+ * recording a command forgets the oldest one.
+ *
+ * Undo runs the inverse command (TurnOn for TurnOff and the other way round) and
+ * redo runs the command again, rebuilt through the codec. A command that did not
+ * change its receiver, like turning on a light that was already on, is recorded
+ * as such; undoing or redoing it does nothing, so undo always restores the state
+ * from before the command.
+ *
+ * The history is the only record of the cursor: recording a new command after
+ * undo drops the commands that could have been redone.
+ */
+final class CompactCommandHistory {
+    // Flag in an opcode byte: the command left its receiver as it was
+    private static final int UNCHANGED = 0x80;
+
+    private final CommandCodec codec;
+    private final byte[] opcodes;
+    private final int[] receiverIds;
+
+    // Guarded by this
+    private int oldest;
+    private int undoable;
+    private int redoable;
+
+    /**
+     * @param codec    receivers and opcodes of the recorded commands
+     * @param capacity commands kept for undo and redo
+     */
+    public CompactCommandHistory(CommandCodec codec, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.codec = codec;
+        this.opcodes = new byte[capacity];
+        this.receiverIds = new int[capacity];
+    }
+
+    /**
+     * Executes the command and records it. Executing holds the same lock as undo
+     * and redo, so the recorded state change is the one this command made and
+     * undo always inverts the most recent command.
+     *
+     * @throws IllegalArgumentException if the codec has no opcode or id for the command
+     */
+    public synchronized void execute(CommandPattern command) {
+        long record = codec.encode(command);
+        int receiverId = CommandCodec.receiverId(record);
+        Light light = codec.lightOf(receiverId);
+        boolean wasOn = light.isOn();
+        command.execute();
+        int opcode = CommandCodec.opcode(record);
+        record(light.isOn() == wasOn ? opcode | UNCHANGED : opcode, receiverId);
+    }
+
+    private void record(int opcode, int receiverId) {
+        int capacity = opcodes.length;
+        int slot = (oldest + undoable) % capacity;
+        opcodes[slot] = (byte) opcode;
+        receiverIds[slot] = receiverId;
+        if (undoable == capacity) {
+            oldest = (oldest + 1) % capacity;
+        } else {
+            undoable++;
+        }
+        redoable = 0;
+    }
+
+    /**
+     * Reverts the most recent command that has not been undone.
+     *
+     * @return false if there is nothing left to undo
+     */
+    public synchronized boolean undo() {
+        if (undoable == 0) {
+            return false;
+        }
+        int slot = (oldest + undoable - 1) % opcodes.length;
+        int opcode = opcodes[slot] & 0xFF;
+        if ((opcode & UNCHANGED) == 0) {
+            codec.decode(CommandCodec.record(CommandCodec.inverse(opcode), receiverIds[slot])).execute();
+        }
+        undoable--;
+        redoable++;
+        return true;
+    }
+
+    /**
+     * Executes the most recently undone command again.
+     *
+     * @return false if there is nothing to redo
+     */
+    public synchronized boolean redo() {
+        if (redoable == 0) {
+            return false;
+        }
+        int slot = (oldest + undoable) % opcodes.length;
+        int opcode = opcodes[slot] & 0xFF;
+        if ((opcode & UNCHANGED) == 0) {
+            codec.decode(CommandCodec.record(opcode, receiverIds[slot])).execute();
+        }
+        undoable++;
+        redoable--;
+        return true;
+    }
+
+    public synchronized int getUndoCount() {
+        return undoable;
+    }
+
+    public synchronized int getRedoCount() {
+        return redoable;
+    }
+
+    public int getCapacity() {
+        return opcodes.length;
+    }
+}
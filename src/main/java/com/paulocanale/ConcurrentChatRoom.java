@@ -0,0 +1,214 @@
+package com.paulocanale;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent Chat Room
+ *
+ * ChatMediator that spreads a room over several cores. Users are sharded across
+ * partitions, each owning its users and served by its own SerialExecutor lane, so
+ * the partitions fan a message out in parallel without sharing any state. Every
+ * user has a bounded mailbox, also a SerialExecutor, so a slow receive delays only
+ * that user; a message arriving at a full mailbox is dropped and counted.
+ *
+ * Users are placed by a hash of their name. A direct message goes to the one lane
+ * owning the recipient; each lane keeps a RoutingIndex of its users' topic
+ * subscriptions, so a published message is one task per lane, each walking only
+ * its own subscribers.
+ *
+ * Sending only hands the message to the lanes and returns. Messages from one
+ * sender thread are queued to the lanes, and from each lane to the mailboxes, in
+ * the order they were sent, so each user receives them in that order, whether
+ * broadcast, direct or published.
+ *
+ * All lanes and mailboxes drain on the supplied Executor, see SerialExecutor.
+ */
+final class ConcurrentChatRoom implements ChatMediator {
+    private final Partition[] partitions;
+    private final Executor executor;
+    private final int mailboxCapacity;
+    // Every member by name, for direct messages and idle checks from outside the lanes
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param partitions      number of lanes users are sharded across
+     * @param mailboxCapacity messages a user can have waiting before new ones are dropped
+     * @param executor        runs the lanes and the mailboxes
+     */
+    public ConcurrentChatRoom(int partitions, int mailboxCapacity, Executor executor) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be positive");
+        }
+        this.partitions = new Partition[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new Partition(new SerialExecutor(executor));
+        }
+        this.executor = executor;
+        this.mailboxCapacity = mailboxCapacity;
+    }
+
+    @Override
+    public void addUser(User user) {
+        Partition partition = partitions[Math.floorMod(Objects.hashCode(user.name), partitions.length)];
+        Member member = new Member(user, partition, new SerialExecutor(executor, mailboxCapacity));
+        if (members.putIfAbsent(user.name, member) != null) {
+            throw new IllegalArgumentException("User name already taken: " + user.name);
+        }
+        // The lane owns its member list and index, so they are changed only from the lane
+        partition.lane.execute(() -> {
+            partition.members.add(member);
+            partition.routes.addName(user.name, member);
+        });
+    }
+
+    @Override
+    public void removeUser(User user) {
+        Member member = members.get(user.name);
+        if (member != null && member.user == user && members.remove(user.name, member)) {
+            Partition partition = member.partition;
+            partition.lane.execute(() -> {
+                member.removed = true;
+                partition.members.remove(member);
+                partition.routes.remove(user.name, member);
+            });
+        }
+    }
+
+    @Override
+    public void sendMessage(String message, User user) {
+        for (Partition partition : partitions) {
+            partition.lane.execute(() -> partition.broadcast(message, user));
+        }
+    }
+
+    @Override
+    public boolean sendDirect(String message, User user, String recipient) {
+        Member member = members.get(recipient);
+        if (member == null) {
+            return false;
+        }
+        member.partition.lane.execute(() -> member.deliver(message));
+        return true;
+    }
+
+    @Override
+    public void subscribe(String topic, User user) {
+        Member member = memberOf(user);
+        member.partition.lane.execute(() -> {
+            // The user may have left between the membership check and this task
+            if (!member.removed) {
+                member.partition.routes.subscribe(topic, member);
+            }
+        });
+    }
+
+    @Override
+    public void unsubscribe(String topic, User user) {
+        Member member = memberOf(user);
+        member.partition.lane.execute(() -> member.partition.routes.unsubscribe(topic, member));
+    }
+
+    @Override
+    public void publish(String message, User user, String topic) {
+        for (Partition partition : partitions) {
+            partition.lane.execute(() -> partition.publish(message, user, topic));
+        }
+    }
+
+    private Member memberOf(User user) {
+        Member member = members.get(user.name);
+        if (member == null || member.user != user) {
+            throw new IllegalArgumentException("User is not in this room: " + user.name);
+        }
+        return member;
+    }
+
+    /**
+     * @return the number of messages dropped because a mailbox was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Waits until every message sent so far has been delivered or dropped. Messages
+     * sent while waiting, including from receive, may or may not be waited for.
+     */
+    public void awaitIdle() {
+        int tries = 0;
+        while (!isIdle()) {
+            tries = Backoff.pause(tries);
+        }
+    }
+
+    // Lanes first: once they are idle no more messages reach the mailboxes
+    private boolean isIdle() {
+        for (Partition partition : partitions) {
+            if (!partition.lane.isIdle()) {
+                return false;
+            }
+        }
+        for (Member member : members.values()) {
+            if (!member.mailbox.isIdle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Partition {
+        final SerialExecutor lane;
+        final List<Member> members = new ArrayList<>();
+        // Names and topic subscriptions of the partition's members
+        final RoutingIndex<Member> routes = new RoutingIndex<>();
+
+        Partition(SerialExecutor lane) {
+            this.lane = lane;
+        }
+
+        // Runs on the lane
+        void broadcast(String message, User sender) {
+            for (Member member : members) {
+                if (member.user != sender) { // send message to all users except the sender
+                    member.deliver(message);
+                }
+            }
+        }
+
+        // Runs on the lane
+        void publish(String message, User sender, String topic) {
+            routes.forEachSubscriber(topic, member -> {
+                if (member.user != sender) {
+                    member.deliver(message);
+                }
+            });
+        }
+    }
+
+    private final class Member {
+        final User user;
+        final Partition partition;
+        final SerialExecutor mailbox;
+        // Set on the lane when the user leaves, confined to the lane
+        boolean removed;
+
+        Member(User user, Partition partition, SerialExecutor mailbox) {
+            this.user = user;
+            this.partition = partition;
+            this.mailbox = mailbox;
+        }
+
+        void deliver(String message) {
+            if (!mailbox.tryExecute(() -> user.receive(message))) {
+                dropped.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.paulocanale;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expression Compiler
+ *
+ * Turns an Expression tree into a single fused MethodHandle chain and binds it
+ * to a freshly defined hidden class. The handle is held in a static final field
+ * of that class, so the JIT treats it as a constant and can inline the whole
+ * tree into one call instead of walking it with virtual interpret calls.
+ * Expressions the compiler does not know are kept as calls to their own interpret.
+ *
+ * Both entry points are compiled: the Map based interpret and the int[] frame
+ * one, which reads the slots of variables bound by BoundExpression.
+ */
+final class ExpressionCompiler {
+    private static final MethodType EVALUATOR_TYPE = MethodType.methodType(int.class, Map.class);
+    private static final MethodType FRAME_EVALUATOR_TYPE = MethodType.methodType(int.class, int[].class);
+
+    private static final MethodHandle VARIABLE;
+    private static final MethodHandle FRAME_SLOT = MethodHandles.arrayElementGetter(int[].class);
+    private static final MethodHandle ADD;
+    private static final MethodHandle SUBTRACT;
+    private static final MethodHandle INTERPRET;
+    private static final MethodHandle INTERPRET_FRAME;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            VARIABLE = lookup.findStatic(ExpressionCompiler.class, "variable",
+                    MethodType.methodType(int.class, Map.class, String.class));
+            ADD = lookup.findStatic(ExpressionCompiler.class, "add",
+                    MethodType.methodType(int.class, int.class, int.class));
+            SUBTRACT = lookup.findStatic(ExpressionCompiler.class, "subtract",
+                    MethodType.methodType(int.class, int.class, int.class));
+            INTERPRET = lookup.findVirtual(Expression.class, "interpret", EVALUATOR_TYPE);
+            INTERPRET_FRAME = lookup.findVirtual(Expression.class, "interpret", FRAME_EVALUATOR_TYPE);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compiles the given tree into an Expression whose interpret is a single
+     * call into a constant MethodHandle chain.
+     *
+     * @param expression the tree to compile
+     * @return an Expression evaluating to the same results as the given tree
+     */
+    public static Expression compile(Expression expression) {
+        // Class data of the template: the Map handle, then the frame handle
+        List<MethodHandle> targets = List.of(toMethodHandle(expression), toFrameMethodHandle(expression));
+        try {
+            MethodHandles.Lookup compiled = MethodHandles.lookup()
+                    .defineHiddenClassWithClassData(TemplateBytes.BYTES, targets, true);
+            return (Expression) compiled
+                    .findConstructor(compiled.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to compile expression", e);
+        }
+    }
+
+    /**
+     * Builds a MethodHandle of type (Map)int evaluating the given tree.
+     *
+     * @param expression the tree to translate
+     * @return the fused handle
+     */
+    static MethodHandle toMethodHandle(Expression expression) {
+        if (expression instanceof Number number) {
+            return MethodHandles.dropArguments(
+                    MethodHandles.constant(int.class, number.getNumber()), 0, Map.class);
+        }
+        if (expression instanceof Variable variable) {
+            return MethodHandles.insertArguments(VARIABLE, 1, variable.getName());
+        }
+        if (expression instanceof Addition addition) {
+            return binary(ADD, addition.getLeftExpression(), addition.getRightExpression());
+        }
+        if (expression instanceof Subtraction subtraction) {
+            return binary(SUBTRACT, subtraction.getLeftExpression(), subtraction.getRightExpression());
+        }
+        return INTERPRET.bindTo(expression);
+    }
+
+    private static MethodHandle binary(MethodHandle operator, Expression left, Expression right) {
+        // (int, int)int -> (Map, Map)int -> (Map)int
+        MethodHandle fused = MethodHandles.filterArguments(operator, 0,
+                toMethodHandle(left), toMethodHandle(right));
+        return MethodHandles.permuteArguments(fused, EVALUATOR_TYPE, 0, 0);
+    }
+
+    /**
+     * Builds a MethodHandle of type (int[])int evaluating the given tree against a
+     * frame. Variables without a slot keep their own interpret, which rejects the call.
+     *
+     * @param expression the tree to translate
+     * @return the fused handle
+     */
+    static MethodHandle toFrameMethodHandle(Expression expression) {
+        if (expression instanceof Number number) {
+            return MethodHandles.dropArguments(
+                    MethodHandles.constant(int.class, number.getNumber()), 0, int[].class);
+        }
+        if (expression instanceof Variable variable && variable.getSlot() >= 0) {
+            return MethodHandles.insertArguments(FRAME_SLOT, 1, variable.getSlot());
+        }
+        if (expression instanceof Addition addition) {
+            return frameBinary(ADD, addition.getLeftExpression(), addition.getRightExpression());
+        }
+        if (expression instanceof Subtraction subtraction) {
+            return frameBinary(SUBTRACT, subtraction.getLeftExpression(), subtraction.getRightExpression());
+        }
+        return INTERPRET_FRAME.bindTo(expression);
+    }
+
+    private static MethodHandle frameBinary(MethodHandle operator, Expression left, Expression right) {
+        // (int, int)int -> (int[], int[])int -> (int[])int
+        MethodHandle fused = MethodHandles.filterArguments(operator, 0,
+                toFrameMethodHandle(left), toFrameMethodHandle(right));
+        return MethodHandles.permuteArguments(fused, FRAME_EVALUATOR_TYPE, 0, 0);
+    }
+
+    private static int variable(Map<String, Integer> context, String name) {
+        return context.getOrDefault(name, 0);
+    }
+
+    private static int add(int left, int right) {
+        return left + right;
+    }
+
+    private static int subtract(int left, int right) {
+        return left - right;
+    }
+
+    // Class file of CompiledExpressionTemplate, loaded once and reused for every compilation
+    private static final class TemplateBytes {
+        static final byte[] BYTES = load();
+
+        private static byte[] load() {
+            String resource = CompiledExpressionTemplate.class.getSimpleName() + ".class";
+            try (InputStream in = CompiledExpressionTemplate.class.getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IllegalStateException("Missing class file " + resource);
+                }
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read class file " + resource, e);
+            }
+        }
+    }
+}
+
+// Template for compiled expressions: each compilation defines a hidden copy of this
+// class whose class data holds the fused MethodHandles, so the targets are true constants.
+final class CompiledExpressionTemplate implements Expression {
+    private static final MethodHandle TARGET = classData(0);
+    private static final MethodHandle FRAME_TARGET = classData(1);
+
+    private static MethodHandle classData(int index) {
+        try {
+            // null for the template itself, which is never instantiated
+            return MethodHandles.classDataAt(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class,
+                    index);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public int interpret(Map<String, Integer> context) {
+        try {
+            return (int) TARGET.invokeExact(context);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    @Override
+    public int interpret(int[] frame) {
+        try {
+            return (int) FRAME_TARGET.invokeExact(frame);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.paulocanale;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Expression Optimizer
+ *
+ * Rewrites Expression trees bottom-up: constant sub-expressions are folded,
+ * algebraic identities (x + 0, 0 + x, x - 0, x - x) are applied, and structurally
+ * identical subtrees are interned so they become a single shared node. Reusing one
+ * optimizer across a rule set shares subtrees between rules as well.
+ *
+ * The result is a DAG. Evaluating it with interpret still visits a shared node once
+ * per parent; {@link ExpressionProgram#of(Expression)} schedules it as straight-line
+ * code so every shared node is evaluated once per evaluation.
+ *
+ * Not thread-safe: use one optimizer per thread, or guard it externally.
+ */
+final class ExpressionOptimizer {
+    private static final int NUMBER = 0;
+    private static final int VARIABLE = 1;
+    private static final int ADDITION = 2;
+    private static final int SUBTRACTION = 3;
+
+    // Structural key of a node whose children are already interned, so children compare by identity
+    private record Key(int kind, int value, Object left, Object right) {
+    }
+
+    private final Map<Key, Expression> interned = new HashMap<>();
+
+    /**
+     * @param expression the tree to optimize; it is not modified
+     * @return an equivalent, interned expression
+     */
+    public Expression optimize(Expression expression) {
+        if (expression instanceof Number number) {
+            return number(number.getNumber());
+        }
+        if (expression instanceof Variable variable) {
+            return intern(new Key(VARIABLE, variable.getSlot(), variable.getName(), null), null);
+        }
+        if (expression instanceof Addition addition) {
+            Expression left = optimize(addition.getLeftExpression());
+            Expression right = optimize(addition.getRightExpression());
+            if (left instanceof Number l && right instanceof Number r) {
+                return number(l.getNumber() + r.getNumber());
+            }
+            if (isZero(left)) {
+                return right;
+            }
+            if (isZero(right)) {
+                return left;
+            }
+            return intern(new Key(ADDITION, 0, left, right), new Addition(left, right));
+        }
+        if (expression instanceof Subtraction subtraction) {
+            Expression left = optimize(subtraction.getLeftExpression());
+            Expression right = optimize(subtraction.getRightExpression());
+            if (left instanceof Number l && right instanceof Number r) {
+                return number(l.getNumber() - r.getNumber());
+            }
+            if (left == right) {
+                // Interned, so identical structure means the same node
+                return number(0);
+            }
+            if (isZero(right)) {
+                return left;
+            }
+            return intern(new Key(SUBTRACTION, 0, left, right), new Subtraction(left, right));
+        }
+        // Unknown expressions are opaque: kept as they are
+        return expression;
+    }
+
+    /**
+     * @return the number of distinct nodes interned so far
+     */
+    public int size() {
+        return interned.size();
+    }
+
+    private Expression number(int value) {
+        return intern(new Key(NUMBER, value, null, null), null);
+    }
+
+    private Expression intern(Key key, Expression candidate) {
+        Expression existing = interned.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        Expression node = candidate;
+        if (key.kind() == NUMBER) {
+            node = new Number(key.value());
+        } else if (key.kind() == VARIABLE) {
+            node = new Variable((String) key.left(), key.value());
+        }
+        interned.put(key, node);
+        return node;
+    }
+
+    private static boolean isZero(Expression expression) {
+        return expression instanceof Number number && number.getNumber() == 0;
+    }
+}
+
+// Straight-line schedule of an expression DAG: one register per distinct node,
+// computed in dependency order, so shared subtrees are evaluated once per call
+final class ExpressionProgram implements Expression {
+    private static final byte CONSTANT = 0;
+    private static final byte VARIABLE = 1;
+    private static final byte ADD = 2;
+    private static final byte SUBTRACT = 3;
+    private static final byte OPAQUE = 4;
+
+    private final byte[] operations;
+    private final int[] left;
+    private final int[] right;
+    private final String[] names;
+    private final Expression[] opaque;
+
+    private ExpressionProgram(byte[] operations, int[] left, int[] right, String[] names, Expression[] opaque) {
+        this.operations = operations;
+        this.left = left;
+        this.right = right;
+        this.names = names;
+        this.opaque = opaque;
+    }
+
+    /**
+     * Schedules the given expression, usually the output of {@link ExpressionOptimizer}.
+     * Nodes reachable through several parents get a single register.
+     */
+    public static ExpressionProgram of(Expression expression) {
+        Scheduler scheduler = new Scheduler();
+        scheduler.schedule(expression);
+        return scheduler.build();
+    }
+
+    public int size() {
+        return operations.length;
+    }
+
+    @Override
+    public int interpret(Map<String, Integer> context) {
+        int[] registers = new int[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            switch (operations[i]) {
+                case CONSTANT -> registers[i] = left[i];
+                case VARIABLE -> registers[i] = context.getOrDefault(names[i], 0);
+                case ADD -> registers[i] = registers[left[i]] + registers[right[i]];
+                case SUBTRACT -> registers[i] = registers[left[i]] - registers[right[i]];
+                default -> registers[i] = opaque[i].interpret(context);
+            }
+        }
+        return registers[operations.length - 1];
+    }
+
+    @Override
+    public int interpret(int[] frame) {
+        int[] registers = new int[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            switch (operations[i]) {
+                case CONSTANT -> registers[i] = left[i];
+                case VARIABLE -> {
+                    if (right[i] < 0) {
+                        throw new IllegalStateException("Variable " + names[i] + " is not bound to a slot");
+                    }
+                    registers[i] = frame[right[i]];
+                }
+                case ADD -> registers[i] = registers[left[i]] + registers[right[i]];
+                case SUBTRACT -> registers[i] = registers[left[i]] - registers[right[i]];
+                default -> registers[i] = opaque[i].interpret(frame);
+            }
+        }
+        return registers[operations.length - 1];
+    }
+
+    private static final class Scheduler {
+        private final Map<Expression, Integer> registers = new IdentityHashMap<>();
+        private final List<Byte> operations = new ArrayList<>();
+        private final List<Integer> left = new ArrayList<>();
+        private final List<Integer> right = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Expression> opaque = new ArrayList<>();
+
+        int schedule(Expression node) {
+            Integer register = registers.get(node);
+            if (register != null) {
+                return register;
+            }
+            if (node instanceof Number number) {
+                register = emit(CONSTANT, number.getNumber(), 0, null, null);
+            } else if (node instanceof Variable variable) {
+                register = emit(VARIABLE, 0, variable.getSlot(), variable.getName(), null);
+            } else if (node instanceof Addition addition) {
+                int l = schedule(addition.getLeftExpression());
+                int r = schedule(addition.getRightExpression());
+                register = emit(ADD, l, r, null, null);
+            } else if (node instanceof Subtraction subtraction) {
+                int l = schedule(subtraction.getLeftExpression());
+                int r = schedule(subtraction.getRightExpression());
+                register = emit(SUBTRACT, l, r, null, null);
+            } else {
+                register = emit(OPAQUE, 0, 0, null, Objects.requireNonNull(node));
+            }
+            registers.put(node, register);
+            return register;
+        }
+
+        private int emit(byte operation, int l, int r, String name, Expression node) {
+            operations.add(operation);
+            left.add(l);
+            right.add(r);
+            names.add(name);
+            opaque.add(node);
+            return operations.size() - 1;
+        }
+
+        ExpressionProgram build() {
+            byte[] ops = new byte[operations.size()];
+            for (int i = 0; i < ops.length; i++) {
+                ops[i] = operations.get(i);
+            }
+            return new ExpressionProgram(ops,
+                    left.stream().mapToInt(Integer::intValue).toArray(),
+                    right.stream().mapToInt(Integer::intValue).toArray(),
+                    names.toArray(new String[0]),
+                    opaque.toArray(new Expression[0]));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.paulocanale;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Expression Parser
+ *
+ * Turns source text such as "(a + b) - c" into an Expression tree in a single pass
+ * over the characters, without regular expressions or an intermediate token list.
+ *
+ * Grammar:
+ *   expression := operand (('+' | '-') operand)*
+ *   operand    := '-' operand | number | identifier | '(' expression ')'
+ *
+ * Operators are left-associative; a unary minus becomes a subtraction from 0,
+ * or a negative Number when applied to a literal. The trees built may be at most
+ * MAX_DEPTH levels high, and parentheses may nest at most MAX_DEPTH levels, so
+ * hostile input is rejected instead of overflowing the stack of the parser or of
+ * the recursive walks over its trees. Every operator and unary minus adds a level:
+ * a flat chain a + b + c ... of n operands is a tree n levels high.
+ */
+final class ExpressionParser {
+    static final int MAX_DEPTH = 256;
+
+    private final String source;
+    private int position;
+    // Parentheses and unary minuses currently open
+    private int depth;
+    // Height of the tree built by the last operand or expression
+    private int height;
+
+    private ExpressionParser(String source) {
+        this.source = source;
+    }
+
+    /**
+     * @param source expression text
+     * @return the parsed tree
+     * @throws IllegalArgumentException if the text is not a valid expression
+     */
+    public static Expression parse(String source) {
+        ExpressionParser parser = new ExpressionParser(source);
+        Expression expression = parser.expression();
+        parser.skipWhitespace();
+        if (parser.position < source.length()) {
+            throw parser.error("Unexpected '" + source.charAt(parser.position) + "'");
+        }
+        return expression;
+    }
+
+    private Expression expression() {
+        Expression expression = operand();
+        while (true) {
+            skipWhitespace();
+            if (position == source.length()) {
+                return expression;
+            }
+            char c = source.charAt(position);
+            if (c == '+' || c == '-') {
+                position++;
+                int leftHeight = height;
+                Expression right = operand();
+                join(leftHeight, height);
+                expression = (c == '+') ? new Addition(expression, right) : new Subtraction(expression, right);
+            } else {
+                return expression;
+            }
+        }
+    }
+
+    private Expression operand() {
+        skipWhitespace();
+        if (position == source.length()) {
+            throw error("Unexpected end of expression");
+        }
+        char c = source.charAt(position);
+        if (c == '-') {
+            position++;
+            skipWhitespace();
+            if (position < source.length() && isDigit(source.charAt(position))) {
+                height = 1;
+                return new Number(number(true));
+            }
+            enter();
+            Expression negated = new Subtraction(new Number(0), operand());
+            depth--;
+            join(1, height);
+            return negated;
+        }
+        if (isDigit(c)) {
+            height = 1;
+            return new Number(number(false));
+        }
+        if (isIdentifierStart(c)) {
+            int start = position++;
+            while (position < source.length() && isIdentifierPart(source.charAt(position))) {
+                position++;
+            }
+            height = 1;
+            return new Variable(source.substring(start, position));
+        }
+        if (c == '(') {
+            enter();
+            position++;
+            Expression expression = expression();
+            depth--;
+            skipWhitespace();
+            if (position == source.length() || source.charAt(position) != ')') {
+                throw error("Expected ')'");
+            }
+            position++;
+            return expression;
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("Expression nested deeper than " + MAX_DEPTH + " levels");
+        }
+    }
+
+    // Records the height of a node joining subtrees of the given heights
+    private void join(int leftHeight, int rightHeight) {
+        height = Math.max(leftHeight, rightHeight) + 1;
+        if (height > MAX_DEPTH) {
+            throw error("Expression more than " + MAX_DEPTH + " levels deep");
+        }
+    }
+
+    private int number(boolean negative) {
+        int start = position;
+        // Accumulate negatively so Integer.MIN_VALUE parses without overflow
+        long value = 0;
+        while (position < source.length() && isDigit(source.charAt(position))) {
+            value = value * 10 - (source.charAt(position++) - '0');
+            if (value < Integer.MIN_VALUE) {
+                position = start;
+                throw error("Number out of range");
+            }
+        }
+        if (!negative) {
+            if (value == Integer.MIN_VALUE) {
+                position = start;
+                throw error("Number out of range");
+            }
+            value = -value;
+        }
+        return (int) value;
+    }
+
+    private void skipWhitespace() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " in \"" + source + "\"");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+}
+
+// Bounded LRU cache of parsed expressions keyed by source text, so hot expressions
+// are parsed once. Parsed trees are immutable and safe to share between threads.
+final class ExpressionParseCache {
+    private final Map<String, Expression> cache;
+    private long hits;
+    private long misses;
+
+    public ExpressionParseCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Expression parse(String source) {
+        synchronized (this) {
+            Expression cached = cache.get(source);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        // Parse outside the lock; a concurrent miss on the same text just parses twice
+        Expression parsed = ExpressionParser.parse(source);
+        synchronized (this) {
+            Expression raced = cache.putIfAbsent(source, parsed);
+            return (raced != null) ? raced : parsed;
+        }
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
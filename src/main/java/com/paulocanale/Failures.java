@@ -0,0 +1,22 @@
+package com.paulocanale;
+
+/**
+ * Failures
+ *
+ * Where background work reports the exceptions nobody waits for. Classes that run
+ * work off the caller's thread take a Thread.UncaughtExceptionHandler for them;
+ * the default, TO_THREAD, hands them to the uncaught exception handler of the
+ * thread that caught them, as if they had ended it. Whether they are logged,
+ * counted or printed is then up to the application, not to this package.
+ */
+final class Failures {
+    static final Thread.UncaughtExceptionHandler TO_THREAD =
+            (thread, failure) -> thread.getUncaughtExceptionHandler().uncaughtException(thread, failure);
+
+    private Failures() {
+    }
+
+    static void report(Thread.UncaughtExceptionHandler handler, Throwable failure) {
+        handler.uncaughtException(Thread.currentThread(), failure);
+    }
+}
@@ -0,0 +1,322 @@
+package com.paulocanale;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File Logger
+ *
+ * Chain of Responsibility handler writing to a file without producing garbage.
+ * The level prefix is encoded once; each message is encoded as UTF-8 character by
+ * character straight into a reusable direct ByteBuffer and handed to a FileChannel,
+ * so steady-state logging allocates nothing per message.
+ *
+ * The file rolls over when it would exceed a maximum size or when the roll interval
+ * has elapsed: app.log becomes app.log.1, app.log.1 becomes app.log.2, and so on up
+ * to the configured number of backups. Every message reaches the operating system
+ * when it is logged; force() to the storage device runs per message or, to trade
+ * durability for throughput, periodically: a scheduled task forces whatever was
+ * written since the last force once per force interval, so no message stays
+ * unforced longer than about one interval, even when logging goes quiet. The task
+ * runs on the builder's scheduler, or on a daemon thread of the logger's own, and
+ * passes a force that fails to the builder's failure handler, see Failures.
+ */
+final class FileLogger extends Logger implements Closeable {
+    private final byte[] prefix;
+    private final Path file;
+    private final long maxFileBytes;
+    private final long rollIntervalMillis;
+    private final long forceIntervalNanos;
+    private final int maxBackups;
+    private final ByteBuffer buffer;
+    // Scheduler created by this logger, shut down on close; null if injected or unused
+    private final ScheduledExecutorService ownScheduler;
+    private final ScheduledFuture<?> periodicForce;
+    private final Thread.UncaughtExceptionHandler failureHandler;
+
+    private FileChannel channel;
+    private long fileSize;
+    private long nextRollMillis;
+    private boolean dirty;
+
+    private FileLogger(FileLoggerBuilder builder) throws IOException {
+        this.level = builder.level;
+        this.prefix = builder.prefix.getBytes(StandardCharsets.UTF_8);
+        this.file = builder.file;
+        this.maxFileBytes = builder.maxFileBytes;
+        this.rollIntervalMillis = (builder.rollInterval == null) ? 0 : builder.rollInterval.toMillis();
+        this.forceIntervalNanos = (builder.forceInterval == null) ? -1 : builder.forceInterval.toNanos();
+        this.maxBackups = builder.maxBackups;
+        this.buffer = ByteBuffer.allocateDirect(builder.bufferSize);
+        this.failureHandler = builder.failureHandler;
+        open();
+        if (forceIntervalNanos > 0) {
+            ScheduledExecutorService scheduler = builder.forceScheduler;
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                    Thread thread = new Thread(task, "file-logger-force");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                this.ownScheduler = scheduler;
+            } else {
+                this.ownScheduler = null;
+            }
+            this.periodicForce = scheduler.scheduleAtFixedRate(this::forcePeriodically, forceIntervalNanos,
+                    forceIntervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.ownScheduler = null;
+            this.periodicForce = null;
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileSize = channel.size();
+        nextRollMillis = (rollIntervalMillis > 0) ? System.currentTimeMillis() + rollIntervalMillis : Long.MAX_VALUE;
+    }
+
+    @Override
+    protected synchronized void write(String message) {
+        try {
+            long length = prefix.length + encodedLength(message) + 1;
+            if (fileSize > 0 && (fileSize + length > maxFileBytes || System.currentTimeMillis() >= nextRollMillis)) {
+                roll();
+            }
+            buffer.clear();
+            put(prefix);
+            encode(message);
+            putByte((byte) '\n');
+            drain();
+            fileSize += length;
+            dirty = true;
+            if (forceIntervalNanos == 0) {
+                force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write to " + file, e);
+        }
+    }
+
+    private void force() throws IOException {
+        channel.force(false);
+        dirty = false;
+    }
+
+    private synchronized void forcePeriodically() {
+        if (!dirty || !channel.isOpen()) {
+            return;
+        }
+        try {
+            force();
+        } catch (IOException e) {
+            // A failing force must not cancel the periodic task; the next one retries
+            Failures.report(failureHandler, new UncheckedIOException("Unable to force " + file, e));
+        }
+    }
+
+    // UTF-8 byte length of the message, matching what encode writes
+    private static int encodedLength(String message) {
+        int length = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < message.length()
+                    && Character.isLowSurrogate(message.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void encode(String message) throws IOException {
+        for (int i = 0; i < message.length(); i++) {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            char c = message.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < message.length()
+                    && Character.isLowSurrogate(message.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, message.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: replaced, as String.getBytes does
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            putByte(b);
+        }
+    }
+
+    private void putByte(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(b);
+    }
+
+    // Writes the buffered bytes to the channel and empties the buffer
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void roll() throws IOException {
+        if (dirty) {
+            channel.force(false);
+        }
+        channel.close();
+        if (maxBackups > 0) {
+            Files.deleteIfExists(backup(maxBackups));
+            for (int index = maxBackups - 1; index >= 1; index--) {
+                Path backup = backup(index);
+                if (Files.exists(backup)) {
+                    Files.move(backup, backup(index + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+        dirty = false;
+    }
+
+    private Path backup(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    /**
+     * Forces any unforced messages to storage and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (periodicForce != null) {
+            periodicForce.cancel(false);
+        }
+        if (ownScheduler != null) {
+            ownScheduler.shutdown();
+        }
+        if (channel.isOpen()) {
+            if (dirty) {
+                channel.force(false);
+            }
+            channel.close();
+        }
+    }
+
+    // Builder for FileLogger: level, prefix and file are required, rolling and forcing are optional
+    public static class FileLoggerBuilder {
+        // Required parameters
+        private final int level;
+        private final String prefix;
+        private final Path file;
+
+        // Optional parameters with default values
+        private long maxFileBytes = Long.MAX_VALUE;
+        private Duration rollInterval = null;
+        private Duration forceInterval = Duration.ZERO;
+        private int maxBackups = 5;
+        private int bufferSize = 64 * 1024;
+        private ScheduledExecutorService forceScheduler = null;
+        private Thread.UncaughtExceptionHandler failureHandler = Failures.TO_THREAD;
+
+        public FileLoggerBuilder(int level, String prefix, Path file) {
+            this.level = level;
+            this.prefix = prefix;
+            this.file = file;
+        }
+
+        // Roll over once the file would grow beyond this size
+        public FileLoggerBuilder maxFileBytes(long maxFileBytes) {
+            this.maxFileBytes = maxFileBytes;
+            return this;
+        }
+
+        // Roll over once this much time has passed since the file was opened
+        public FileLoggerBuilder rollInterval(Duration rollInterval) {
+            this.rollInterval = rollInterval;
+            return this;
+        }
+
+        // Force unforced messages once per interval; ZERO forces every message, null never forces
+        public FileLoggerBuilder forceInterval(Duration forceInterval) {
+            this.forceInterval = forceInterval;
+            return this;
+        }
+
+        // Runs the periodic force; by default the logger starts a daemon thread of its own
+        public FileLoggerBuilder forceScheduler(ScheduledExecutorService forceScheduler) {
+            this.forceScheduler = forceScheduler;
+            return this;
+        }
+
+        // Receives the failures of periodic forces, which no caller waits for
+        public FileLoggerBuilder failureHandler(Thread.UncaughtExceptionHandler failureHandler) {
+            this.failureHandler = Objects.requireNonNull(failureHandler, "failureHandler");
+            return this;
+        }
+
+        public FileLoggerBuilder maxBackups(int maxBackups) {
+            this.maxBackups = maxBackups;
+            return this;
+        }
+
+        public FileLoggerBuilder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public FileLogger build() throws IOException {
+            if (forceInterval != null && forceInterval.isNegative()) {
+                throw new IllegalArgumentException("forceInterval must not be negative");
+            }
+            if (bufferSize < 4) {
+                throw new IllegalArgumentException("bufferSize must hold at least one encoded character");
+            }
+            return new FileLogger(this);
+        }
+    }
+}
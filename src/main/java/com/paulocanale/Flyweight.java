@@ -1,8 +1,5 @@
 package com.paulocanale;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Flyweight Pattern Example
  * 
@@ -26,6 +23,18 @@ class TreeType {
         this.texture = texture;
     }
 
+    public String getName() {
+        return name;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public String getTexture() {
+        return texture;
+    }
+
     public void display(int x, int y) {
         System.out.println("Displaying " + name + " tree at (" + x + ", " + y + ") with color " + color + " and texture " + texture);
     }
@@ -33,15 +42,11 @@ class TreeType {
 
 // Flyweight Factory: TreeFactory
 class TreeFactory {
-    private static Map<String, TreeType> treeTypes = new HashMap<>();
+    private static final TreeTypePool treeTypes = new TreeTypePool(TreeTypePool.Retention.STRONG,
+            type -> System.out.println("Creating new TreeType: " + type.getName()));
 
     public static TreeType getTreeType(String name, String color, String texture) {
-        String key = name + color + texture;
-        if (!treeTypes.containsKey(key)) {
-            treeTypes.put(key, new TreeType(name, color, texture));
-            System.out.println("Creating new TreeType: " + name);
-        }
-        return treeTypes.get(key);
+        return treeTypes.get(name, color, texture);
     }
 }
 
@@ -57,6 +62,18 @@ class Tree {
         this.type = type;
     }
 
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public TreeType getType() {
+        return type;
+    }
+
     public void display() {
         type.display(x, y);
     }
@@ -77,5 +94,12 @@ public class Flyweight {
         tree1.display();
         tree2.display();
         tree3.display();
+
+        // Storing many trees as primitive columns instead of Tree objects
+        Forest forest = Forest.offHeap(16);
+        forest.add(70, 80, oakType);
+        forest.add(90, 100, pineType);
+        System.out.println("\nForest of " + forest.size() + " trees:");
+        forest.display();
     }
 }
@@ -0,0 +1,319 @@
+package com.paulocanale;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forest
+ *
+ * Structure-of-arrays store for Tree contexts. Instead of one Tree object per tree,
+ * the x and y coordinates live in primitive int columns and the TreeType flyweight
+ * is replaced by a 16-bit id into a small type dictionary. A tree then costs 10
+ * bytes, with no object header and no pointer.
+ *
+ * Columns are either plain Java arrays (onHeap) or direct ByteBuffers outside the
+ * Java heap (offHeap). Iteration and display read the columns directly and never
+ * materialize Tree objects.
+ *
+ * Not thread-safe for writers; a forest that is no longer modified can be read
+ * from any number of threads.
+ */
+final class Forest {
+    // Largest number of distinct TreeTypes addressable by the 16-bit type column
+    static final int MAX_TYPES = 1 << 16;
+
+    // Receives each tree of a forest as primitive values plus its shared TreeType
+    interface TreeConsumer {
+        void accept(int x, int y, TreeType type);
+    }
+
+    private final Columns columns;
+    private final List<TreeType> types;
+    private final Map<TreeType, Integer> typeIds = new IdentityHashMap<>();
+    private TreeType[] typeTable;
+    private int size;
+
+    Forest(Columns columns, List<TreeType> types, int size) {
+        this.columns = columns;
+        this.types = new ArrayList<>(types);
+        for (int id = 0; id < types.size(); id++) {
+            typeIds.put(types.get(id), id);
+        }
+        this.typeTable = this.types.toArray(new TreeType[0]);
+        this.size = size;
+    }
+
+    public static Forest onHeap(int initialCapacity) {
+        return new Forest(new HeapColumns(initialCapacity), List.of(), 0);
+    }
+
+    public static Forest offHeap(int initialCapacity) {
+        return new Forest(new DirectColumns(initialCapacity), List.of(), 0);
+    }
+
+    /**
+     * Adds a tree and returns its index.
+     */
+    public int add(int x, int y, TreeType type) {
+        int typeId = typeIdOf(type);
+        columns.ensureCapacity(size + 1);
+        columns.set(size, x, y, typeId);
+        return size++;
+    }
+
+    private int typeIdOf(TreeType type) {
+        Integer id = typeIds.get(type);
+        if (id != null) {
+            return id;
+        }
+        if (types.size() == MAX_TYPES) {
+            throw new IllegalStateException("A forest holds at most " + MAX_TYPES + " tree types");
+        }
+        id = types.size();
+        types.add(type);
+        typeIds.put(type, id);
+        typeTable = types.toArray(new TreeType[0]);
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getX(int index) {
+        checkIndex(index);
+        return columns.x(index);
+    }
+
+    public int getY(int index) {
+        checkIndex(index);
+        return columns.y(index);
+    }
+
+    public int getTypeId(int index) {
+        checkIndex(index);
+        return columns.typeId(index);
+    }
+
+    /**
+     * @throws IllegalStateException if the tree's type id is not in the dictionary,
+     *                               which only a corrupt mapped file can cause
+     */
+    public TreeType getType(int index) {
+        return Columns.type(typeTable, index, getTypeId(index));
+    }
+
+    public int getTypeCount() {
+        return typeTable.length;
+    }
+
+    public TreeType getTypeById(int typeId) {
+        return typeTable[typeId];
+    }
+
+    /**
+     * Materializes one tree, for callers that need a Tree object.
+     */
+    public Tree getTree(int index) {
+        return new Tree(getX(index), getY(index), getType(index));
+    }
+
+    /**
+     * @throws IllegalStateException on reaching a tree whose type id is not in the
+     *                               dictionary, see getType
+     */
+    public void forEach(TreeConsumer consumer) {
+        columns.forEach(size, typeTable, consumer);
+    }
+
+    public void display() {
+        forEach((x, y, type) -> type.display(x, y));
+    }
+
+    Columns getColumns() {
+        return columns;
+    }
+
+    TreeType[] getTypeTable() {
+        return typeTable;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for forest of " + size + " trees");
+        }
+    }
+
+    // Storage of the three columns; forEach is implemented per storage so its loop stays monomorphic
+    abstract static class Columns {
+        abstract void ensureCapacity(int capacity);
+
+        abstract void set(int index, int x, int y, int typeId);
+
+        abstract int x(int index);
+
+        abstract int y(int index);
+
+        abstract int typeId(int index);
+
+        abstract void forEach(int size, TreeType[] types, TreeConsumer consumer);
+
+        static int grow(int capacity, int required, int maxCapacity) {
+            if (required > maxCapacity) {
+                throw new IllegalStateException("Forest capacity exceeded: " + required + " > " + maxCapacity);
+            }
+            long grown = Math.max((long) required, capacity + (capacity >> 1) + 16L);
+            return (int) Math.min(grown, maxCapacity);
+        }
+
+        // Mapped columns are not validated up front, so ids are checked as they are read
+        static TreeType type(TreeType[] types, int index, int typeId) {
+            if (typeId >= types.length) {
+                throw new IllegalStateException("Tree " + index + " has type id " + typeId + " of " + types.length
+                        + " types");
+            }
+            return types[typeId];
+        }
+    }
+
+    static final class HeapColumns extends Columns {
+        private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+        private int[] xs;
+        private int[] ys;
+        private char[] typeIds;
+
+        HeapColumns(int initialCapacity) {
+            xs = new int[initialCapacity];
+            ys = new int[initialCapacity];
+            typeIds = new char[initialCapacity];
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > xs.length) {
+                int grown = grow(xs.length, capacity, MAX_CAPACITY);
+                xs = Arrays.copyOf(xs, grown);
+                ys = Arrays.copyOf(ys, grown);
+                typeIds = Arrays.copyOf(typeIds, grown);
+            }
+        }
+
+        @Override
+        void set(int index, int x, int y, int typeId) {
+            xs[index] = x;
+            ys[index] = y;
+            typeIds[index] = (char) typeId;
+        }
+
+        @Override
+        int x(int index) {
+            return xs[index];
+        }
+
+        @Override
+        int y(int index) {
+            return ys[index];
+        }
+
+        @Override
+        int typeId(int index) {
+            return typeIds[index];
+        }
+
+        @Override
+        void forEach(int size, TreeType[] types, TreeConsumer consumer) {
+            int[] xs = this.xs;
+            int[] ys = this.ys;
+            char[] typeIds = this.typeIds;
+            for (int i = 0; i < size; i++) {
+                consumer.accept(xs[i], ys[i], type(types, i, typeIds[i]));
+            }
+        }
+    }
+
+    // Columns in separate little-endian buffers, either direct or memory-mapped
+    static final class DirectColumns extends Columns {
+        // Bound by the 2 GB limit of the 4-byte-per-tree coordinate buffers
+        private static final int MAX_CAPACITY = Integer.MAX_VALUE / Integer.BYTES;
+
+        private ByteBuffer xs;
+        private ByteBuffer ys;
+        private ByteBuffer typeIds;
+        private final boolean readOnly;
+
+        DirectColumns(int initialCapacity) {
+            this(allocate(initialCapacity, Integer.BYTES), allocate(initialCapacity, Integer.BYTES),
+                    allocate(initialCapacity, Character.BYTES), false);
+        }
+
+        DirectColumns(ByteBuffer xs, ByteBuffer ys, ByteBuffer typeIds, boolean readOnly) {
+            this.xs = xs.order(ByteOrder.LITTLE_ENDIAN);
+            this.ys = ys.order(ByteOrder.LITTLE_ENDIAN);
+            this.typeIds = typeIds.order(ByteOrder.LITTLE_ENDIAN);
+            this.readOnly = readOnly;
+        }
+
+        private static ByteBuffer allocate(int capacity, int bytesPerTree) {
+            return ByteBuffer.allocateDirect(capacity * bytesPerTree).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private static ByteBuffer copy(ByteBuffer source, int capacity, int bytesPerTree) {
+            ByteBuffer target = allocate(capacity, bytesPerTree);
+            target.put(source.duplicate().clear());
+            return target.clear();
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (readOnly) {
+                throw new UnsupportedOperationException("Forest is read-only");
+            }
+            int current = xs.capacity() / Integer.BYTES;
+            if (capacity > current) {
+                int grown = grow(current, capacity, MAX_CAPACITY);
+                xs = copy(xs, grown, Integer.BYTES);
+                ys = copy(ys, grown, Integer.BYTES);
+                typeIds = copy(typeIds, grown, Character.BYTES);
+            }
+        }
+
+        @Override
+        void set(int index, int x, int y, int typeId) {
+            xs.putInt(index * Integer.BYTES, x);
+            ys.putInt(index * Integer.BYTES, y);
+            typeIds.putChar(index * Character.BYTES, (char) typeId);
+        }
+
+        @Override
+        int x(int index) {
+            return xs.getInt(index * Integer.BYTES);
+        }
+
+        @Override
+        int y(int index) {
+            return ys.getInt(index * Integer.BYTES);
+        }
+
+        @Override
+        int typeId(int index) {
+            return typeIds.getChar(index * Character.BYTES);
+        }
+
+        @Override
+        void forEach(int size, TreeType[] types, TreeConsumer consumer) {
+            ByteBuffer xs = this.xs;
+            ByteBuffer ys = this.ys;
+            ByteBuffer typeIds = this.typeIds;
+            for (int i = 0; i < size; i++) {
+                consumer.accept(xs.getInt(i * Integer.BYTES), ys.getInt(i * Integer.BYTES),
+                        type(types, i, typeIds.getChar(i * Character.BYTES)));
+            }
+        }
+    }
+}
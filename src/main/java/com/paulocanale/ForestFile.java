@@ -0,0 +1,193 @@
+package com.paulocanale;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forest File
+ *
+ * Binary on-disk format for a Forest, laid out so that a saved forest can be
+ * memory-mapped and used immediately, with no per-tree deserialization.
+ * All values are little-endian:
+ *
+ *   header      magic "FRST", version, tree count, type count (4 x int32),
+ *               columns offset (int64), reserved (int64)
+ *   dictionary  per TreeType: name, color, texture as (int32 length, UTF-8 bytes)
+ *   padding     up to the next 8-byte boundary
+ *   columns     x (int32 per tree), y (int32 per tree), type id (uint16 per tree)
+ *
+ * The columns are the same layout the off-heap Forest uses, so {@link #map(Path)}
+ * hands the mapped regions straight to a read-only Forest. Only the header and the
+ * small type dictionary are decoded, and its TreeTypes are shared through
+ * TreeFactory. The columns are not read at all until the forest is used: a type id
+ * outside the dictionary is reported by the Forest when that tree is read.
+ */
+final class ForestFile {
+    private static final int MAGIC = 'F' | ('R' << 8) | ('S' << 16) | ('T' << 24);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int WRITE_CHUNK = 64 * 1024;
+    // Each column is mapped as one region, and a region holds at most 2 GB
+    static final int MAX_TREES = Integer.MAX_VALUE / Integer.BYTES;
+
+    private ForestFile() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the forest has more than MAX_TREES trees,
+     *                                  which could be written but not mapped back
+     */
+    public static void write(Forest forest, Path path) throws IOException {
+        int size = forest.size();
+        if (size > MAX_TREES) {
+            throw new IllegalArgumentException("Forest of " + size + " trees exceeds the " + MAX_TREES
+                    + " a forest file can map");
+        }
+        TreeType[] types = forest.getTypeTable();
+        ByteBuffer dictionary = encodeDictionary(types);
+        long columnsOffset = align(HEADER_SIZE + dictionary.remaining());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(types.length).putLong(columnsOffset).putLong(0);
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header, 0);
+            writeFully(channel, dictionary, HEADER_SIZE);
+
+            Forest.Columns columns = forest.getColumns();
+            ByteBuffer chunk = ByteBuffer.allocateDirect(WRITE_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            long position = columnsOffset;
+            position = writeColumn(channel, chunk, position, size, Integer.BYTES, columns::x);
+            position = writeColumn(channel, chunk, position, size, Integer.BYTES, columns::y);
+            writeColumn(channel, chunk, position, size, Character.BYTES, columns::typeId);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Maps a forest file into memory. The returned forest is read-only and reads
+     * its trees directly from the page cache.
+     */
+    public static Forest map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a forest file: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a forest file: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported forest file version " + header.getInt(4) + ": " + path);
+            }
+            int size = header.getInt(8);
+            int typeCount = header.getInt(12);
+            long columnsOffset = header.getLong(16);
+            long coordinatesBytes = (long) size * Integer.BYTES;
+            long typeIdsBytes = (long) size * Character.BYTES;
+            if (size < 0 || size > MAX_TREES || typeCount < 0 || typeCount > Forest.MAX_TYPES || columnsOffset < HEADER_SIZE
+                    || columnsOffset + 2 * coordinatesBytes + typeIdsBytes > fileSize) {
+                throw new IOException("Corrupt forest file header: " + path);
+            }
+
+            ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+                    columnsOffset - HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            List<TreeType> types = decodeDictionary(dictionary, typeCount, path);
+
+            // Mappings stay valid after the channel is closed
+            ByteBuffer xs = channel.map(FileChannel.MapMode.READ_ONLY, columnsOffset, coordinatesBytes);
+            ByteBuffer ys = channel.map(FileChannel.MapMode.READ_ONLY, columnsOffset + coordinatesBytes,
+                    coordinatesBytes);
+            ByteBuffer typeIds = channel.map(FileChannel.MapMode.READ_ONLY, columnsOffset + 2 * coordinatesBytes,
+                    typeIdsBytes).order(ByteOrder.LITTLE_ENDIAN);
+            return new Forest(new Forest.DirectColumns(xs, ys, typeIds, true), types, size);
+        }
+    }
+
+    private static ByteBuffer encodeDictionary(TreeType[] types) {
+        List<byte[]> strings = new ArrayList<>();
+        int length = 0;
+        for (TreeType type : types) {
+            for (String value : new String[]{type.getName(), type.getColor(), type.getTexture()}) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                length += Integer.BYTES + bytes.length;
+            }
+        }
+        ByteBuffer dictionary = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        for (byte[] bytes : strings) {
+            dictionary.putInt(bytes.length).put(bytes);
+        }
+        return dictionary.flip();
+    }
+
+    private static List<TreeType> decodeDictionary(ByteBuffer dictionary, int typeCount, Path path)
+            throws IOException {
+        List<TreeType> types = new ArrayList<>(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            String name = readString(dictionary, path);
+            String color = readString(dictionary, path);
+            String texture = readString(dictionary, path);
+            types.add(TreeFactory.getTreeType(name, color, texture));
+        }
+        return types;
+    }
+
+    private static String readString(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new IOException("Corrupt forest file dictionary: " + path);
+        }
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt forest file dictionary: " + path);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Reads one column value of the tree at the given index
+    private interface ColumnReader {
+        int read(int index);
+    }
+
+    private static long writeColumn(FileChannel channel, ByteBuffer chunk, long position, int size,
+                                    int bytesPerTree, ColumnReader column) throws IOException {
+        chunk.clear();
+        for (int i = 0; i < size; i++) {
+            if (chunk.remaining() < bytesPerTree) {
+                position += writeFully(channel, chunk.flip(), position);
+                chunk.clear();
+            }
+            if (bytesPerTree == Integer.BYTES) {
+                chunk.putInt(column.read(i));
+            } else {
+                chunk.putChar((char) column.read(i));
+            }
+        }
+        return position + writeFully(channel, chunk.flip(), position);
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -1,5 +1,6 @@
 package com.paulocanale;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -15,6 +16,12 @@ import java.util.Map;
 // Abstract Expression
 interface Expression {
     int interpret(Map<String, Integer> context);
+
+    /**
+     * Evaluates against a frame of variable values indexed by slot, as assigned
+     * by {@link BoundExpression#bind(Expression)}.
+     */
+    int interpret(int[] frame);
 }
 
 // Terminal Expression: Number
@@ -25,24 +32,56 @@ class Number implements Expression {
         this.number = number;
     }
 
+    public int getNumber() {
+        return number;
+    }
+
     @Override
     public int interpret(Map<String, Integer> context) {
         return number;
     }
+
+    @Override
+    public int interpret(int[] frame) {
+        return number;
+    }
 }
 
 // Terminal Expression: Variable
 class Variable implements Expression {
     private String name;
+    private int slot;
 
     public Variable(String name) {
+        this(name, -1);
+    }
+
+    // Variable resolved to a frame slot, see BoundExpression
+    Variable(String name, int slot) {
         this.name = name;
+        this.slot = slot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSlot() {
+        return slot;
     }
 
     @Override
     public int interpret(Map<String, Integer> context) {
         return context.getOrDefault(name, 0);
     }
+
+    @Override
+    public int interpret(int[] frame) {
+        if (slot < 0) {
+            throw new IllegalStateException("Variable " + name + " is not bound to a slot");
+        }
+        return frame[slot];
+    }
 }
 
 // Non-terminal Expression: Addition
@@ -55,10 +94,23 @@ class Addition implements Expression {
         this.rightExpression = rightExpression;
     }
 
+    public Expression getLeftExpression() {
+        return leftExpression;
+    }
+
+    public Expression getRightExpression() {
+        return rightExpression;
+    }
+
     @Override
     public int interpret(Map<String, Integer> context) {
         return leftExpression.interpret(context) + rightExpression.interpret(context);
     }
+
+    @Override
+    public int interpret(int[] frame) {
+        return leftExpression.interpret(frame) + rightExpression.interpret(frame);
+    }
 }
 
 // Non-terminal Expression: Subtraction
@@ -71,10 +123,23 @@ class Subtraction implements Expression {
         this.rightExpression = rightExpression;
     }
 
+    public Expression getLeftExpression() {
+        return leftExpression;
+    }
+
+    public Expression getRightExpression() {
+        return rightExpression;
+    }
+
     @Override
     public int interpret(Map<String, Integer> context) {
         return leftExpression.interpret(context) - rightExpression.interpret(context);
     }
+
+    @Override
+    public int interpret(int[] frame) {
+        return leftExpression.interpret(frame) - rightExpression.interpret(frame);
+    }
 }
 
 // Main class to demonstrate the Interpreter pattern
@@ -94,5 +159,35 @@ public class Interpreter {
         // Interpret the expression: (5 + 10) - 4 = 11
         int result = expression.interpret(context);
         System.out.println("Result: " + result); // Output: Result: 11
+
+        // Compile the tree once, then evaluate it as a single call
+        Expression compiled = ExpressionCompiler.compile(expression);
+        System.out.println("Compiled result: " + compiled.interpret(context)); // Output: Compiled result: 11
+
+        // Resolve variables to slots once, then evaluate against plain int frames
+        BoundExpression bound = BoundExpression.bind(expression);
+        int[] frame = bound.frameOf(context);
+        System.out.println("Frame result: " + bound.interpret(frame)); // Output: Frame result: 11
+
+        // Evaluate the expression over whole columns of values at once
+        int[] results = new int[3];
+        new ColumnarEvaluator(expression).evaluate(Map.of(
+                "a", new int[]{5, 1, 2},
+                "b", new int[]{10, 1, 3},
+                "c", new int[]{4, 1, 9}), results);
+        System.out.println("Column results: " + Arrays.toString(results)); // Output: Column results: [11, 1, -4]
+
+        // Optimize: (a + b) - (a + b) + (2 - 2) folds down to the constant 0
+        ExpressionOptimizer optimizer = new ExpressionOptimizer();
+        Expression redundant = new Addition(
+                new Subtraction(new Addition(a, b), new Addition(new Variable("a"), new Variable("b"))),
+                new Subtraction(new Number(2), new Number(2)));
+        Expression optimized = optimizer.optimize(redundant);
+        System.out.println("Optimized result: " + ExpressionProgram.of(optimized).interpret(context)); // Output: Optimized result: 0
+
+        // Parse expressions from text, caching hot sources
+        ExpressionParseCache parser = new ExpressionParseCache(1024);
+        Expression parsed = parser.parse("(a + b) - c");
+        System.out.println("Parsed result: " + parsed.interpret(context)); // Output: Parsed result: 11
     }
 }
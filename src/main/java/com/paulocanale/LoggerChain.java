@@ -0,0 +1,99 @@
+package com.paulocanale;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Logger Chain
+ *
+ * Compiled form of a chain of Logger handlers. The handlers that accept each level
+ * are known once the chain is set up, so compile resolves them into one array per
+ * distinct handler level, in chain order; a message level uses the array of the
+ * highest handler level not above it. Dispatch is then a binary search over those
+ * few levels and a loop over exactly the handlers that write, with no recursion
+ * through nextLogger and no per-handler level check. The table grows with the
+ * number of handlers, whatever values their levels have.
+ *
+ * The table is a snapshot: recompile after changing the chain or handler levels.
+ */
+final class LoggerChain {
+    private static final Logger[] NONE = new Logger[0];
+
+    // Distinct handler levels, ascending
+    private final int[] levels;
+    // handlersByLevel[i]: handlers accepting levels[i] and every level up to the next entry
+    private final Logger[][] handlersByLevel;
+
+    private LoggerChain(int[] levels, Logger[][] handlersByLevel) {
+        this.levels = levels;
+        this.handlersByLevel = handlersByLevel;
+    }
+
+    /**
+     * @param head first handler of the chain
+     * @return the compiled dispatch table of the chain
+     */
+    public static LoggerChain compile(Logger head) {
+        List<Logger> handlers = new ArrayList<>();
+        Set<Logger> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Logger logger = head; logger != null; logger = logger.nextLogger) {
+            if (!seen.add(logger)) {
+                throw new IllegalArgumentException("Logger chain contains a cycle");
+            }
+            handlers.add(logger);
+        }
+        int[] levels = handlers.stream().mapToInt(handler -> handler.level).sorted().distinct().toArray();
+        Logger[][] handlersByLevel = new Logger[levels.length][];
+        for (int i = 0; i < levels.length; i++) {
+            List<Logger> accepting = new ArrayList<>();
+            for (Logger handler : handlers) {
+                if (handler.level <= levels[i]) {
+                    accepting.add(handler);
+                }
+            }
+            handlersByLevel[i] = accepting.toArray(NONE);
+        }
+        return new LoggerChain(levels, handlersByLevel);
+    }
+
+    public boolean isEnabled(int level) {
+        return handlersFor(level).length > 0;
+    }
+
+    public void logMessage(int level, String message) {
+        for (Logger handler : handlersFor(level)) {
+            handler.write(message);
+        }
+    }
+
+    /**
+     * Builds the message only if some handler accepts the level.
+     */
+    public void logMessage(int level, Supplier<String> messageSupplier) {
+        Logger[] handlers = handlersFor(level);
+        if (handlers.length == 0) {
+            return;
+        }
+        String message = messageSupplier.get();
+        for (Logger handler : handlers) {
+            handler.write(message);
+        }
+    }
+
+    private Logger[] handlersFor(int level) {
+        int index = Arrays.binarySearch(levels, level);
+        if (index < 0) {
+            // Highest handler level below the message level, -1 if there is none
+            index = -index - 2;
+            if (index < 0) {
+                return NONE;
+            }
+        }
+        return handlersByLevel[index];
+    }
+}
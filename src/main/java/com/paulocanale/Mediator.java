@@ -2,6 +2,8 @@ package com.paulocanale;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Mediator Pattern Example
@@ -19,19 +21,74 @@ interface ChatMediator {
     void sendMessage(String message, User user);
 
     void addUser(User user);
+
+    void removeUser(User user);
+
+    /**
+     * Sends a message to the single user with the given name.
+     *
+     * @return false if the room has no user of that name
+     */
+    boolean sendDirect(String message, User user, String recipient);
+
+    void subscribe(String topic, User user);
+
+    void unsubscribe(String topic, User user);
+
+    // Sends a message to the topic's subscribers, except the sender
+    void publish(String message, User user, String topic);
 }
 
 // Concrete Mediator: ChatRoom
 class ChatRoom implements ChatMediator {
     private List<User> users;
+    private RoutingIndex<User> routes;
 
     public ChatRoom() {
         this.users = new ArrayList<>();
+        this.routes = new RoutingIndex<>();
     }
 
     @Override
     public void addUser(User user) {
         users.add(user);
+        // A user whose name is taken still joins; direct messages go to the first holder
+        routes.addName(user.name, user);
+    }
+
+    @Override
+    public void removeUser(User user) {
+        users.remove(user);
+        routes.remove(user.name, user);
+    }
+
+    @Override
+    public boolean sendDirect(String message, User user, String recipient) {
+        User target = routes.byName(recipient);
+        if (target == null) {
+            return false;
+        }
+        target.receive(message);
+        return true;
+    }
+
+    @Override
+    public void subscribe(String topic, User user) {
+        routes.subscribe(topic, user);
+    }
+
+    @Override
+    public void unsubscribe(String topic, User user) {
+        routes.unsubscribe(topic, user);
+    }
+
+    @Override
+    public void publish(String message, User user, String topic) {
+        routes.forEachSubscriber(topic, subscriber -> {
+            if (subscriber != user) {
+                subscriber.receive(message);
+            }
+        });
     }
 
     @Override
@@ -72,6 +129,16 @@ class ConcreteUser extends User {
         mediator.sendMessage(message, this);
     }
 
+    public void sendTo(String recipient, String message) {
+        System.out.println(this.name + " sends to " + recipient + ": " + message);
+        mediator.sendDirect(message, this, recipient);
+    }
+
+    public void publish(String topic, String message) {
+        System.out.println(this.name + " sends to #" + topic + ": " + message);
+        mediator.publish(message, this, topic);
+    }
+
     @Override
     public void receive(String message) {
         System.out.println(this.name + " receives: " + message);
@@ -95,5 +162,31 @@ public class Mediator {
 
         user1.send("Hello, everyone!");
         user3.send("Hi, Paulo!");
+
+        // Direct messages and topics reach only their recipients
+        ConcreteUser paulo = (ConcreteUser) user1;
+        chatRoom.subscribe("patterns", user2);
+        chatRoom.subscribe("patterns", user4);
+        paulo.sendTo("Italo", "Lunch later?");
+        paulo.publish("patterns", "New example: Mediator with routing.");
+
+        // Same conversation in a sharded room: delivery runs on a pool, each user in order
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ConcurrentChatRoom concurrentRoom = new ConcurrentChatRoom(2, 1024, executor);
+        User user5 = new ConcreteUser(concurrentRoom, "Paulo");
+        User user6 = new ConcreteUser(concurrentRoom, "Cesar");
+        User user7 = new ConcreteUser(concurrentRoom, "Italo");
+
+        concurrentRoom.addUser(user5);
+        concurrentRoom.addUser(user6);
+        concurrentRoom.addUser(user7);
+
+        System.out.println();
+        user5.send("Hello from the concurrent room!");
+        user5.send("Messages from one sender arrive in order.");
+        concurrentRoom.subscribe("patterns", user7);
+        ((ConcreteUser) user6).publish("patterns", "Topics work in the concurrent room too.");
+        concurrentRoom.awaitIdle();
+        executor.shutdown();
     }
 }
@@ -1,6 +1,7 @@
 package com.paulocanale;
 
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Memento Pattern Example
@@ -46,21 +47,123 @@ class TextEditor {
     }
 }
 
+// Incremental memento: the change from one saved content to the next, as the
+// range of the earlier content to replace and the text to put in its place
+class DeltaMemento {
+    private final int start;
+    private final int removedLength;
+    private final String inserted;
+
+    private DeltaMemento(int start, int removedLength, String inserted) {
+        this.start = start;
+        this.removedLength = removedLength;
+        this.inserted = inserted;
+    }
+
+    // Keeps only what lies between the common prefix and the common suffix
+    public static DeltaMemento between(String before, String after) {
+        int limit = Math.min(before.length(), after.length());
+        int prefix = 0;
+        while (prefix < limit && before.charAt(prefix) == after.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return new DeltaMemento(prefix, before.length() - prefix - suffix,
+                after.substring(prefix, after.length() - suffix));
+    }
+
+    public void applyTo(StringBuilder content) {
+        content.replace(start, start + removedLength, inserted);
+    }
+}
+
 // Caretaker class: EditorHistory
+//
+// Stores a full TextMemento every checkpointInterval saves and a DeltaMemento
+// against the previous save otherwise, so history memory grows with the size of
+// the edits rather than the size of the document. Restoring a save replays at
+// most checkpointInterval - 1 deltas on top of the checkpoint before it.
 class EditorHistory {
-    private Stack<TextMemento> history = new Stack<>();
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 16;
+
+    private final int checkpointInterval;
+    // One entry per save: a checkpoint, or else the delta from the save before it
+    private final List<TextMemento> checkpoints = new ArrayList<>();
+    private final List<DeltaMemento> deltas = new ArrayList<>();
+    // Content of the latest save, the base of the next delta
+    private String lastContent;
+
+    public EditorHistory() {
+        this(DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public EditorHistory(int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval must be positive");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
 
     public void save(TextEditor editor) {
-        history.push(editor.save());
+        TextMemento memento = editor.save();
+        String content = memento.getContent();
+        int index = checkpoints.size();
+        // A null content has nothing to diff against, so it always gets a checkpoint
+        if (index % checkpointInterval == 0 || content == null || lastContent == null) {
+            checkpoints.add(memento);
+            deltas.add(null);
+        } else {
+            checkpoints.add(null);
+            deltas.add(DeltaMemento.between(lastContent, content));
+        }
+        lastContent = content;
     }
 
     public void undo(TextEditor editor) {
-        if (!history.isEmpty()) {
-            editor.restore(history.pop());
+        if (!checkpoints.isEmpty()) {
+            editor.restore(new TextMemento(lastContent));
+            checkpoints.remove(checkpoints.size() - 1);
+            deltas.remove(deltas.size() - 1);
+            lastContent = checkpoints.isEmpty() ? null : contentAt(checkpoints.size() - 1);
         } else {
             System.out.println("No states to undo.");
         }
     }
+
+    /**
+     * Restores the content of a save, counted from the oldest (0), without
+     * changing the history.
+     */
+    public void restore(TextEditor editor, int index) {
+        if (index < 0 || index >= checkpoints.size()) {
+            throw new IndexOutOfBoundsException("No save " + index + " in a history of " + checkpoints.size());
+        }
+        editor.restore(new TextMemento(contentAt(index)));
+    }
+
+    public int size() {
+        return checkpoints.size();
+    }
+
+    private String contentAt(int index) {
+        int checkpoint = index;
+        while (checkpoints.get(checkpoint) == null) {
+            checkpoint--;
+        }
+        String content = checkpoints.get(checkpoint).getContent();
+        if (checkpoint == index) {
+            return content;
+        }
+        StringBuilder replayed = new StringBuilder(content);
+        for (int i = checkpoint + 1; i <= index; i++) {
+            deltas.get(i).applyTo(replayed);
+        }
+        return replayed.toString();
+    }
 }
 
 // Main class to demonstrate the Memento pattern
@@ -86,5 +189,16 @@ public class Memento {
 
         history.undo(editor);
         System.out.println("Content: " + editor.getContent());
+
+        // A long edit session keeps deltas between checkpoints instead of a copy per save
+        EditorHistory session = new EditorHistory(4);
+        StringBuilder draft = new StringBuilder("Dear team,");
+        for (int i = 1; i <= 10; i++) {
+            draft.append(" Point ").append(i).append('.');
+            editor.write(draft.toString());
+            session.save(editor);
+        }
+        session.restore(editor, 2);
+        System.out.println("\nSave 2 of " + session.size() + ": " + editor.getContent());
     }
 }
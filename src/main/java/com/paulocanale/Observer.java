@@ -1,7 +1,9 @@
 package com.paulocanale;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Observer Pattern Example
@@ -19,10 +21,39 @@ interface ObserverPattern {
     void update(float temperature);
 }
 
-// Subject class
+// Aggregate observer interface: rolling statistics instead of every raw reading
+interface WindowObserver {
+    void update(float min, float max, float mean, int count);
+}
+
+// Band observer interface: told only when the temperature enters or leaves its band
+interface ThresholdObserver {
+    void entered(float temperature);
+
+    void exited(float temperature);
+}
+
+// Subject class: observers can be added, removed and notified from any thread
 class TemperatureSensor {
-    private List<ObserverPattern> observers = new ArrayList<>();
-    private float temperature;
+    private final SnapshotRegistry<ObserverPattern> observers = new SnapshotRegistry<>(ObserverPattern[]::new);
+    private final SnapshotRegistry<WindowObserver> windowObservers = new SnapshotRegistry<>(WindowObserver[]::new);
+    // Shared rolling window, or null if the sensor keeps no history
+    private final TemperatureWindow window;
+    // Created by the first threshold observer, so sensors without one pay nothing
+    private volatile ThresholdIndex thresholds;
+    private volatile float temperature = Float.NaN;
+
+    public TemperatureSensor() {
+        this.window = null;
+    }
+
+    /**
+     * @param windowReadings readings kept for window observers
+     * @param windowAge      readings older than this leave the window, or null for no age limit
+     */
+    public TemperatureSensor(int windowReadings, Duration windowAge) {
+        this.window = new TemperatureWindow(windowReadings, windowAge);
+    }
 
     public void addObserver(ObserverPattern observer) {
         observers.add(observer);
@@ -32,13 +63,82 @@ class TemperatureSensor {
         observers.remove(observer);
     }
 
+    public void addWindowObserver(WindowObserver observer) {
+        if (window == null) {
+            throw new IllegalStateException("Sensor was created without a window");
+        }
+        windowObservers.add(observer);
+    }
+
+    public void removeWindowObserver(WindowObserver observer) {
+        windowObservers.remove(observer);
+    }
+
+    /**
+     * Registers an observer told when the temperature enters or leaves [low, high].
+     * Updates visit only the bands whose edges the temperature crossed.
+     */
+    public void addThresholdObserver(float low, float high, ThresholdObserver observer) {
+        thresholdIndex().add(low, high, observer);
+    }
+
+    public void removeThresholdObserver(ThresholdObserver observer) {
+        ThresholdIndex index = thresholds;
+        if (index != null) {
+            index.remove(observer);
+        }
+    }
+
+    private ThresholdIndex thresholdIndex() {
+        ThresholdIndex index = thresholds;
+        if (index == null) {
+            synchronized (this) {
+                index = thresholds;
+                if (index == null) {
+                    index = new ThresholdIndex();
+                    thresholds = index;
+                    // Read after publishing: a reading this misses is applied by its own setter
+                    index.seed(temperature);
+                }
+            }
+        }
+        return index;
+    }
+
+    // Last temperature set, or NaN before the first reading
+    public float getTemperature() {
+        return temperature;
+    }
+
     public void setTemperature(float temperature) {
         this.temperature = temperature;
-        notifyObservers();
+        notifyObservers(temperature);
+        ThresholdIndex index = thresholds;
+        if (index != null) {
+            index.update(temperature);
+        }
+        if (window != null) {
+            updateWindow(temperature);
+        }
     }
 
-    private void notifyObservers() {
-        for (ObserverPattern observer : observers) {
+    // Readings enter the window one at a time, so window observers see aggregates in order
+    private void updateWindow(float temperature) {
+        synchronized (window) {
+            window.add(temperature, System.nanoTime());
+            float min = window.getMin();
+            float max = window.getMax();
+            float mean = window.getMean();
+            int count = window.getCount();
+            for (WindowObserver observer : windowObservers.snapshot()) {
+                observer.update(min, max, mean, count);
+            }
+        }
+    }
+
+    // Passes the value that was set, not the field, which another thread may already have changed
+    private void notifyObservers(float temperature) {
+        for (ObserverPattern observer : observers.snapshot()) {
             observer.update(temperature);
         }
     }
@@ -60,7 +160,7 @@ class DisplayDevice implements ObserverPattern {
 
 // Main class to demonstrate the Observer pattern
 public class Observer {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         TemperatureSensor sensor = new TemperatureSensor();
 
         // Create observers
@@ -82,5 +182,47 @@ public class Observer {
         sensor.removeObserver(phoneDisplay);
         System.out.println("\nSetting temperature to 28°C after removing Phone display:");
         sensor.setTemperature(28);
+
+        // A display behind its own mailbox: it gets only the latest reading and never holds up the sensor
+        ExecutorService executor = Executors.newCachedThreadPool();
+        AsyncObserver wallDisplay = new AsyncObserver(new DisplayDevice("Wall"), executor, 16,
+                AsyncObserver.DeliveryPolicy.CONFLATE);
+        TemperatureSensor roomSensor = new TemperatureSensor();
+        roomSensor.addObserver(wallDisplay);
+        System.out.println("\nSetting room temperature from 20°C to 24°C:");
+        for (int temperature = 20; temperature <= 24; temperature++) {
+            roomSensor.setTemperature(temperature);
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        System.out.println("Wall display: " + wallDisplay.getDelivered() + " delivered, "
+                + wallDisplay.getConflated() + " skipped as stale");
+
+        // Rolling statistics over the last 3 readings, maintained once by the sensor
+        TemperatureSensor windowSensor = new TemperatureSensor(3, Duration.ofMinutes(5));
+        windowSensor.addWindowObserver((min, max, mean, count) -> System.out.println(
+                "Last " + count + " readings: min = " + min + "°C, max = " + max + "°C, mean = " + mean + "°C"));
+        System.out.println("\nSetting temperatures 21, 25, 19 and 23°C:");
+        for (float temperature : new float[]{21, 25, 19, 23}) {
+            windowSensor.setTemperature(temperature);
+        }
+
+        // Alerts subscribed to a band hear only about crossing its edges
+        TemperatureSensor alertSensor = new TemperatureSensor();
+        alertSensor.addThresholdObserver(30, Float.POSITIVE_INFINITY, new ThresholdObserver() {
+            @Override
+            public void entered(float temperature) {
+                System.out.println("Heat alert raised at " + temperature + "°C");
+            }
+
+            @Override
+            public void exited(float temperature) {
+                System.out.println("Heat alert cleared at " + temperature + "°C");
+            }
+        });
+        System.out.println("\nSetting temperatures 26, 31, 33 and 29°C:");
+        for (float temperature : new float[]{26, 31, 33, 29}) {
+            alertSensor.setTemperature(temperature);
+        }
     }
 }
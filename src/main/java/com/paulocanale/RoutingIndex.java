@@ -0,0 +1,152 @@
+package com.paulocanale;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Routing Index
+ *
+ * Addressing tables of a mediator: members by name for direct messages, and
+ * subscription sets by topic. Each subscription set keeps its members in a dense
+ * array, with their positions in an identity map, so subscribe and unsubscribe
+ * are O(1) and delivering to a topic walks exactly its subscribers, in one pass
+ * over an array. Each member's own topics are kept as well, so removing a member
+ * costs its subscriptions, not the number of topics. Not thread-safe.
+ *
+ * @param <T> member type
+ */
+final class RoutingIndex<T> {
+    private final Map<String, T> names = new HashMap<>();
+    private final Map<String, Subscribers<T>> topics = new HashMap<>();
+    // Topics of each subscribed member
+    private final Map<T, Set<String>> memberTopics = new IdentityHashMap<>();
+
+    /**
+     * @return false, leaving the index unchanged, if the name is already taken
+     */
+    public boolean addName(String name, T member) {
+        return names.putIfAbsent(name, member) == null;
+    }
+
+    /**
+     * Removes all of the member's subscriptions, and its name if the name is
+     * registered to it.
+     *
+     * @return false if the name was not registered to this member
+     */
+    public boolean remove(String name, T member) {
+        Set<String> subscribed = memberTopics.remove(member);
+        if (subscribed != null) {
+            for (String topic : subscribed) {
+                removeSubscriber(topic, member);
+            }
+        }
+        return names.remove(name, member);
+    }
+
+    /**
+     * @return the member registered under the name, or null
+     */
+    public T byName(String name) {
+        return names.get(name);
+    }
+
+    /**
+     * @return false if the member was already subscribed
+     */
+    public boolean subscribe(String topic, T member) {
+        if (!topics.computeIfAbsent(topic, key -> new Subscribers<>()).add(member)) {
+            return false;
+        }
+        memberTopics.computeIfAbsent(member, key -> new HashSet<>()).add(topic);
+        return true;
+    }
+
+    /**
+     * @return false if the member was not subscribed
+     */
+    public boolean unsubscribe(String topic, T member) {
+        if (!removeSubscriber(topic, member)) {
+            return false;
+        }
+        Set<String> subscribed = memberTopics.get(member);
+        subscribed.remove(topic);
+        if (subscribed.isEmpty()) {
+            memberTopics.remove(member);
+        }
+        return true;
+    }
+
+    private boolean removeSubscriber(String topic, T member) {
+        Subscribers<T> subscribers = topics.get(topic);
+        if (subscribers == null || !subscribers.remove(member)) {
+            return false;
+        }
+        if (subscribers.size == 0) {
+            topics.remove(topic);
+        }
+        return true;
+    }
+
+    public int subscriberCount(String topic) {
+        Subscribers<T> subscribers = topics.get(topic);
+        return (subscribers == null) ? 0 : subscribers.size;
+    }
+
+    /**
+     * Passes every subscriber of the topic to the consumer. The consumer must not
+     * change the topic's subscriptions.
+     */
+    public void forEachSubscriber(String topic, Consumer<T> consumer) {
+        Subscribers<T> subscribers = topics.get(topic);
+        if (subscribers != null) {
+            subscribers.forEach(consumer);
+        }
+    }
+
+    // Dense member array; removal moves the last member into the hole
+    private static final class Subscribers<T> {
+        private Object[] members = new Object[4];
+        private final Map<T, Integer> positions = new IdentityHashMap<>();
+        private int size;
+
+        boolean add(T member) {
+            if (positions.putIfAbsent(member, size) != null) {
+                return false;
+            }
+            if (size == members.length) {
+                members = Arrays.copyOf(members, size * 2);
+            }
+            members[size++] = member;
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean remove(T member) {
+            Integer position = positions.remove(member);
+            if (position == null) {
+                return false;
+            }
+            size--;
+            if (position != size) {
+                T last = (T) members[size];
+                members[position] = last;
+                positions.put(last, position);
+            }
+            members[size] = null;
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(Consumer<T> consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept((T) members[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.paulocanale;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serial Executor
+ *
+ * Runs its tasks one at a time, in submission order, on an underlying Executor.
+ * Only one drain task is scheduled at a time, so an idle SerialExecutor costs a
+ * queue and a counter, not a thread; many of them can share one pool. A drain
+ * yields the thread after a batch so the serial executors sharing a pool take
+ * turns. With a capacity, tryExecute refuses tasks once that many are pending.
+ *
+ * A task that throws does not stop the ones behind it: exceptions go to the
+ * failure handler, see Failures. An Error still propagates and ends the drain that
+ * ran the task, but the tasks behind it are handed to a new drain first.
+ *
+ * Any Executor works: a shared pool or, when running on Java 21 (the tree itself
+ * targets Java 17), Executors.newVirtualThreadPerTaskExecutor() for one cheap
+ * thread per drain.
+ */
+final class SerialExecutor implements Executor {
+    // Tasks run per drain before it goes back to the end of the underlying executor's queue
+    private static final int DRAIN_BATCH = 64;
+
+    private final Executor executor;
+    private final int capacity;
+    private final Thread.UncaughtExceptionHandler failureHandler;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Tasks accepted and not yet run; the submission that raises it from 0 schedules the drain
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Runnable drain = this::drain;
+
+    public SerialExecutor(Executor executor) {
+        this(executor, Integer.MAX_VALUE);
+    }
+
+    public SerialExecutor(Executor executor, int capacity) {
+        this(executor, capacity, Failures.TO_THREAD);
+    }
+
+    /**
+     * @param executor       runs the drain tasks
+     * @param capacity       maximum number of pending tasks
+     * @param failureHandler receives the exceptions thrown by tasks
+     */
+    public SerialExecutor(Executor executor, int capacity, Thread.UncaughtExceptionHandler failureHandler) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.executor = executor;
+        this.capacity = capacity;
+        this.failureHandler = Objects.requireNonNull(failureHandler, "failureHandler");
+    }
+
+    /**
+     * @throws RejectedExecutionException if capacity tasks are already pending
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (!tryExecute(task)) {
+            throw new RejectedExecutionException("SerialExecutor is full");
+        }
+    }
+
+    /**
+     * @return false, without queueing the task, if capacity tasks are already pending
+     * @throws RejectedExecutionException if the underlying executor refuses the drain;
+     *                                    the task is then not queued either
+     */
+    public boolean tryExecute(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        int before;
+        do {
+            before = pending.get();
+            if (before >= capacity) {
+                return false;
+            }
+        } while (!pending.compareAndSet(before, before + 1));
+        tasks.add(task);
+        if (before == 0) {
+            try {
+                executor.execute(drain);
+            } catch (RejectedExecutionException e) {
+                unschedule(task);
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    // Takes back a task whose drain was rejected. Tasks accepted behind it counted on
+    // that drain, so if there are any they are run here, as drain does on rejection.
+    private void unschedule(Runnable task) {
+        // Nothing was pending before it, so it is the first queued task
+        tasks.remove(task);
+        if (pending.decrementAndGet() > 0) {
+            drain();
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public boolean isIdle() {
+        return pending.get() == 0;
+    }
+
+    private void drain() {
+        while (runBatch()) {
+            try {
+                executor.execute(drain);
+                return;
+            } catch (RejectedExecutionException e) {
+                // The executor is shutting down: finish the accepted tasks on this thread
+            }
+        }
+    }
+
+    private void reschedule() {
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException e) {
+            drain();
+        }
+    }
+
+    // Returns true if tasks are still pending after a full batch
+    private boolean runBatch() {
+        for (int count = 0; count < DRAIN_BATCH; count++) {
+            Runnable task;
+            while ((task = tasks.poll()) == null) {
+                // Counted by a producer that has not queued it yet
+                Thread.onSpinWait();
+            }
+            boolean escaped = true;
+            try {
+                task.run();
+                escaped = false;
+            } catch (RuntimeException e) {
+                // A failing task must not stop the ones behind it
+                Failures.report(failureHandler, e);
+                escaped = false;
+            } finally {
+                if (escaped && pending.decrementAndGet() > 0) {
+                    // An Error is leaving this drain: the tasks behind it need another one
+                    reschedule();
+                }
+            }
+            if (pending.decrementAndGet() == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package com.paulocanale;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Snapshot Registry
+ *
+ * Copy-on-write set of subscribers for a subject that notifies far more often than
+ * its subscribers change. The subscribers live in an immutable array; add and remove
+ * build a new array and swap it in with a CAS, retrying if another thread got there
+ * first. Notification reads the current array once and iterates it without locks,
+ * so it never sees a half-applied change and never throws
+ * ConcurrentModificationException. A subscriber removed during a notification may
+ * still receive that one notification.
+ *
+ * @param <T> subscriber type
+ */
+final class SnapshotRegistry<T> {
+    private final IntFunction<T[]> arrayFactory;
+    private final AtomicReference<T[]> subscribers;
+
+    /**
+     * @param arrayFactory creates subscriber arrays of the given length, e.g. ObserverPattern[]::new
+     */
+    public SnapshotRegistry(IntFunction<T[]> arrayFactory) {
+        this.arrayFactory = arrayFactory;
+        this.subscribers = new AtomicReference<>(arrayFactory.apply(0));
+    }
+
+    public void add(T subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        while (true) {
+            T[] current = subscribers.get();
+            T[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscriber;
+            if (subscribers.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the first occurrence of the subscriber.
+     *
+     * @return true if the subscriber was registered
+     */
+    public boolean remove(T subscriber) {
+        while (true) {
+            T[] current = subscribers.get();
+            int index = indexOf(current, subscriber);
+            if (index < 0) {
+                return false;
+            }
+            T[] updated = arrayFactory.apply(current.length - 1);
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            if (subscribers.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the current subscribers; the array is shared and must not be modified
+     */
+    public T[] snapshot() {
+        return subscribers.get();
+    }
+
+    public int size() {
+        return subscribers.get().length;
+    }
+
+    private static int indexOf(Object[] array, Object subscriber) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i].equals(subscriber)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,44 @@
+package com.paulocanale;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Striped Executor
+ *
+ * Runs tasks keyed by an object: tasks with the same key run one at a time in
+ * submission order, tasks with different keys may run in parallel. Keys are
+ * spread by identity hash over a fixed set of SerialExecutor stripes sharing one
+ * Executor, so the cost does not depend on the number of keys; two keys that land
+ * on the same stripe are simply ordered with each other as well.
+ */
+final class StripedExecutor {
+    private final SerialExecutor[] stripes;
+    private final int mask;
+
+    /**
+     * @param executor runs the stripes
+     * @param stripes  number of stripes, rounded up to a power of two; a few per core
+     *                 keeps unrelated keys from queueing behind each other
+     */
+    public StripedExecutor(Executor executor, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new SerialExecutor[Math.max(1, size)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new SerialExecutor(executor);
+        }
+        this.mask = this.stripes.length - 1;
+    }
+
+    public void execute(Object key, Runnable task) {
+        int h = System.identityHashCode(key);
+        // Identity hashes are poor in the low bits; mix the high bits in
+        stripes[(h ^ (h >>> 16)) & mask].execute(task);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+}
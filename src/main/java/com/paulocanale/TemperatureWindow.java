@@ -0,0 +1,168 @@
+package com.paulocanale;
+
+import java.time.Duration;
+
+/**
+ * Temperature Window
+ *
+ * Sliding window over the most recent readings of a sensor, bounded by a number of
+ * readings and optionally by age. Readings live in a primitive float ring, and the
+ * aggregates are maintained incrementally as readings enter and leave:
+ *
+ *   min, max  monotonic deques of reading sequence numbers; the front is the current extreme
+ *             and every reading is pushed and popped at most once
+ *   mean      running sum, recomputed from the ring once per window length so
+ *             floating-point drift cannot build up
+ *
+ * so adding a reading costs amortized O(1) whatever the window size. Age is checked
+ * when a reading arrives; the aggregates describe the window as of the last reading.
+ * Not thread-safe: TemperatureSensor serializes access.
+ */
+final class TemperatureWindow {
+    private final int capacity;
+    private final long maxAgeNanos;
+    private final float[] values;
+    private final long[] timestamps;
+    // Sequence numbers of the readings in the window are [first, next)
+    private long first;
+    private long next;
+    private double sum;
+    private int sinceRecompute;
+    private final Deque minDeque;
+    private final Deque maxDeque;
+
+    /**
+     * @param maxReadings readings kept in the window
+     * @param maxAge      readings older than this leave the window, or null for no age limit
+     */
+    public TemperatureWindow(int maxReadings, Duration maxAge) {
+        if (maxReadings <= 0) {
+            throw new IllegalArgumentException("maxReadings must be positive");
+        }
+        this.capacity = maxReadings;
+        this.maxAgeNanos = (maxAge == null) ? Long.MAX_VALUE : maxAge.toNanos();
+        this.values = new float[maxReadings];
+        this.timestamps = new long[maxReadings];
+        this.minDeque = new Deque(maxReadings);
+        this.maxDeque = new Deque(maxReadings);
+    }
+
+    /**
+     * Adds a reading taken at the given System.nanoTime(), first evicting readings
+     * that are too old or that the new one pushes out.
+     */
+    public void add(float value, long nanos) {
+        while (first < next && nanos - timestamps[slot(first)] > maxAgeNanos) {
+            evict();
+        }
+        if (next - first == capacity) {
+            evict();
+        }
+        long sequence = next++;
+        values[slot(sequence)] = value;
+        timestamps[slot(sequence)] = nanos;
+        sum += value;
+        // Older readings that are not beyond the new one can never be the extreme again
+        while (!minDeque.isEmpty() && valueOf(minDeque.last()) >= value) {
+            minDeque.removeLast();
+        }
+        minDeque.addLast(sequence);
+        while (!maxDeque.isEmpty() && valueOf(maxDeque.last()) <= value) {
+            maxDeque.removeLast();
+        }
+        maxDeque.addLast(sequence);
+        if (++sinceRecompute >= capacity) {
+            recomputeSum();
+        }
+    }
+
+    private void evict() {
+        long sequence = first++;
+        sum -= values[slot(sequence)];
+        if (minDeque.first() == sequence) {
+            minDeque.removeFirst();
+        }
+        if (maxDeque.first() == sequence) {
+            maxDeque.removeFirst();
+        }
+    }
+
+    private void recomputeSum() {
+        double exact = 0;
+        for (long sequence = first; sequence < next; sequence++) {
+            exact += values[slot(sequence)];
+        }
+        sum = exact;
+        sinceRecompute = 0;
+    }
+
+    public int getCount() {
+        return (int) (next - first);
+    }
+
+    /**
+     * @return the lowest reading in the window, or NaN if it is empty
+     */
+    public float getMin() {
+        return minDeque.isEmpty() ? Float.NaN : valueOf(minDeque.first());
+    }
+
+    /**
+     * @return the highest reading in the window, or NaN if it is empty
+     */
+    public float getMax() {
+        return maxDeque.isEmpty() ? Float.NaN : valueOf(maxDeque.first());
+    }
+
+    /**
+     * @return the mean of the readings in the window, or NaN if it is empty
+     */
+    public float getMean() {
+        return (next == first) ? Float.NaN : (float) (sum / (next - first));
+    }
+
+    private float valueOf(long sequence) {
+        return values[slot(sequence)];
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    // Double-ended queue of sequence numbers in a fixed ring; never holds more than the window
+    private static final class Deque {
+        private final long[] sequences;
+        private int head;
+        private int size;
+
+        Deque(int capacity) {
+            this.sequences = new long[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long first() {
+            return sequences[head];
+        }
+
+        long last() {
+            return sequences[(head + size - 1) % sequences.length];
+        }
+
+        void addLast(long sequence) {
+            sequences[(head + size) % sequences.length] = sequence;
+            size++;
+        }
+
+        void removeFirst() {
+            head = (head + 1) % sequences.length;
+            size--;
+        }
+
+        void removeLast() {
+            size--;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.paulocanale;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Threshold Index
+ *
+ * Range-subscribed observers of a temperature, indexed by the endpoints of their
+ * bands. An observer is inside its band when low <= temperature <= high, and only
+ * hears about entering and leaving it. When the temperature moves from prev to cur,
+ * an observer can change sides only if one of its endpoints lies between the two:
+ *
+ *   low  in (min(prev, cur), max(prev, cur)]
+ *   high in [min(prev, cur), max(prev, cur))
+ *
+ * so the bands are kept in two arrays sorted by low and by high, and an update does
+ * two binary searches and visits only those candidates: O(log n + k) instead of a
+ * call per observer. The arrays are rebuilt lazily on the first update after
+ * observers were added or removed, so bulk registration sorts once.
+ *
+ * Updates and registrations are serialized; callbacks run under the index lock, in
+ * the order the temperatures were applied.
+ */
+final class ThresholdIndex {
+    private static final Band[] NO_BANDS = new Band[0];
+
+    private final Map<ThresholdObserver, Band> bands = new LinkedHashMap<>();
+    private Band[] byLow = NO_BANDS;
+    private float[] lows = new float[0];
+    private Band[] byHigh = NO_BANDS;
+    private float[] highs = new float[0];
+    private boolean dirty;
+    // Last applied temperature; NaN until the first one, and inside no band
+    private float current = Float.NaN;
+    private boolean updated;
+
+    /**
+     * Registers an observer for the band [low, high]. If the current temperature is
+     * already inside the band, the observer is told immediately.
+     */
+    public synchronized void add(float low, float high, ThresholdObserver observer) {
+        if (!(low <= high)) {
+            throw new IllegalArgumentException("Invalid band [" + low + ", " + high + "]");
+        }
+        if (bands.containsKey(observer)) {
+            throw new IllegalArgumentException("Observer is already registered");
+        }
+        Band band = new Band(low, high, observer);
+        bands.put(observer, band);
+        dirty = true;
+        if (band.contains(current)) {
+            observer.entered(current);
+        }
+    }
+
+    /**
+     * @return true if the observer was registered
+     */
+    public synchronized boolean remove(ThresholdObserver observer) {
+        if (bands.remove(observer) == null) {
+            return false;
+        }
+        dirty = true;
+        return true;
+    }
+
+    public synchronized int size() {
+        return bands.size();
+    }
+
+    /**
+     * Sets the starting temperature unless an update already did.
+     */
+    synchronized void seed(float temperature) {
+        if (!updated) {
+            current = temperature;
+        }
+    }
+
+    public synchronized void update(float temperature) {
+        float previous = current;
+        current = temperature;
+        updated = true;
+        if (Float.compare(previous, temperature) == 0 || bands.isEmpty()) {
+            return;
+        }
+        if (Float.isNaN(previous) || Float.isNaN(temperature)) {
+            // No ordering to search by: compare every band once
+            for (Band band : bands.values()) {
+                notifyChange(band, previous, temperature);
+            }
+            return;
+        }
+        if (dirty) {
+            rebuild();
+        }
+        float from = Math.min(previous, temperature);
+        float to = Math.max(previous, temperature);
+        // Bands with low in (from, to]
+        int lowEnd = upperBound(lows, to);
+        for (int i = upperBound(lows, from); i < lowEnd; i++) {
+            notifyChange(byLow[i], previous, temperature);
+        }
+        // Bands with high in [from, to), skipping those already seen through their low
+        int highEnd = lowerBound(highs, to);
+        for (int i = lowerBound(highs, from); i < highEnd; i++) {
+            Band band = byHigh[i];
+            if (!(band.low > from && band.low <= to)) {
+                notifyChange(band, previous, temperature);
+            }
+        }
+    }
+
+    private static void notifyChange(Band band, float previous, float temperature) {
+        boolean wasInside = band.contains(previous);
+        boolean isInside = band.contains(temperature);
+        if (isInside && !wasInside) {
+            band.observer.entered(temperature);
+        } else if (wasInside && !isInside) {
+            band.observer.exited(temperature);
+        }
+    }
+
+    private void rebuild() {
+        byLow = bands.values().toArray(NO_BANDS);
+        byHigh = byLow.clone();
+        Arrays.sort(byLow, Comparator.comparingDouble(band -> band.low));
+        Arrays.sort(byHigh, Comparator.comparingDouble(band -> band.high));
+        lows = new float[byLow.length];
+        highs = new float[byHigh.length];
+        for (int i = 0; i < byLow.length; i++) {
+            lows[i] = byLow[i].low;
+            highs[i] = byHigh[i].high;
+        }
+        dirty = false;
+    }
+
+    // Index of the first value greater than key
+    private static int upperBound(float[] values, float key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Index of the first value greater than or equal to key
+    private static int lowerBound(float[] values, float key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static final class Band {
+        final float low;
+        final float high;
+        final ThresholdObserver observer;
+
+        Band(float low, float high, ThresholdObserver observer) {
+            this.low = low;
+            this.high = high;
+            this.observer = observer;
+        }
+
+        boolean contains(float temperature) {
+            return low <= temperature && temperature <= high;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.paulocanale;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Tree Grid
+ *
+ * Uniform grid spatial index over Tree flyweight contexts. The plane is cut into
+ * square cells of cellSize units; each occupied cell keeps its trees together with
+ * copies of their coordinates, so range filtering never dereferences a Tree that
+ * lies outside the range. Viewport queries visit only the cells overlapping the
+ * range, and nearest-neighbour search expands ring by ring around the query point.
+ * When a range or ring covers more cells than are occupied, both scan the occupied
+ * cells instead, so a sparse grid costs no more than its trees.
+ *
+ * Choose a cellSize close to the typical viewport size divided by a small number
+ * (2 to 8). Not thread-safe.
+ */
+final class TreeGrid {
+    private final int cellSize;
+    private final CellMap cells = new CellMap();
+    private int size;
+    // Bounds of the occupied cells, used to end nearest-neighbour searches
+    private int minCellX = Integer.MAX_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+    // Set when a cell on the bounds was emptied; the bounds are recomputed before use
+    private boolean boundsStale;
+
+    public TreeGrid(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        this.cellSize = cellSize;
+    }
+
+    public void insert(Tree tree) {
+        int cellX = cellOf(tree.getX());
+        int cellY = cellOf(tree.getY());
+        Cell cell = cells.get(key(cellX, cellY));
+        if (cell == null) {
+            cell = new Cell();
+            cells.put(key(cellX, cellY), cell);
+            minCellX = Math.min(minCellX, cellX);
+            minCellY = Math.min(minCellY, cellY);
+            maxCellX = Math.max(maxCellX, cellX);
+            maxCellY = Math.max(maxCellY, cellY);
+        }
+        cell.add(tree);
+        size++;
+    }
+
+    /**
+     * Removes the given tree instance.
+     *
+     * @return true if the tree was indexed
+     */
+    public boolean remove(Tree tree) {
+        int cellX = cellOf(tree.getX());
+        int cellY = cellOf(tree.getY());
+        Cell cell = cells.get(key(cellX, cellY));
+        if (cell == null || !cell.remove(tree)) {
+            return false;
+        }
+        size--;
+        if (cell.isEmpty()) {
+            cells.remove(key(cellX, cellY));
+            if (cellX == minCellX || cellX == maxCellX || cellY == minCellY || cellY == maxCellY) {
+                boundsStale = true;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes every tree with minX <= x <= maxX and minY <= y <= maxY to the consumer.
+     */
+    public void query(int minX, int minY, int maxX, int maxY, Consumer<Tree> consumer) {
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+        int fromX = cellOf(minX);
+        int fromY = cellOf(minY);
+        int toX = cellOf(maxX);
+        int toY = cellOf(maxY);
+        long rangeCells = ((long) toX - fromX + 1) * ((long) toY - fromY + 1);
+        if (rangeCells > cells.size()) {
+            // Sparse grid under a huge range: scanning occupied cells is cheaper
+            cells.forEach(cell -> cell.query(minX, minY, maxX, maxY, consumer));
+            return;
+        }
+        // long counters: an int one would wrap instead of passing toX == Integer.MAX_VALUE
+        for (long cellX = fromX; cellX <= toX; cellX++) {
+            for (long cellY = fromY; cellY <= toY; cellY++) {
+                Cell cell = cells.get(key((int) cellX, (int) cellY));
+                if (cell != null) {
+                    cell.query(minX, minY, maxX, maxY, consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the tree closest to (x, y), or null if the grid is empty
+     */
+    public Tree nearest(int x, int y) {
+        if (size == 0) {
+            return null;
+        }
+        if (boundsStale) {
+            recomputeBounds();
+        }
+        int centerX = cellOf(x);
+        int centerY = cellOf(y);
+        long maxRing = Math.max(
+                Math.max((long) centerX - minCellX, (long) maxCellX - centerX),
+                Math.max((long) centerY - minCellY, (long) maxCellY - centerY));
+        // Rings closer than the occupied bounds are empty
+        long firstRing = Math.max(
+                Math.max((long) minCellX - centerX, (long) centerX - maxCellX),
+                Math.max((long) minCellY - centerY, (long) centerY - maxCellY));
+        Nearest nearest = new Nearest(x, y);
+        for (long ring = Math.max(0, firstRing); ring <= maxRing; ring++) {
+            if (ring * 8 > cells.size()) {
+                // The ring has more cells than the grid has occupied: scan those instead
+                cells.forEach(cell -> cell.nearest(nearest));
+                return nearest.best;
+            }
+            visitRing(centerX, centerY, (int) ring, nearest);
+            // Anything not visited yet lies outside the block of cells around the center
+            double reach = Math.min(
+                    Math.min((double) x - (centerX - ring) * (double) cellSize, (centerX + ring + 1) * (double) cellSize - x),
+                    Math.min((double) y - (centerY - ring) * (double) cellSize, (centerY + ring + 1) * (double) cellSize - y));
+            if (nearest.best != null && nearest.bestDistance <= reach * reach) {
+                break;
+            }
+        }
+        return nearest.best;
+    }
+
+    private void visitRing(int centerX, int centerY, int ring, Nearest nearest) {
+        long fromX = (long) centerX - ring;
+        long toX = (long) centerX + ring;
+        long fromY = (long) centerY - ring;
+        long toY = (long) centerY + ring;
+        // Only the part of the ring inside the occupied bounds can hold cells
+        for (long cellX = Math.max(fromX, minCellX); cellX <= Math.min(toX, maxCellX); cellX++) {
+            if (cellX == fromX || cellX == toX) {
+                for (long cellY = Math.max(fromY, minCellY); cellY <= Math.min(toY, maxCellY); cellY++) {
+                    visitCell(cellX, cellY, nearest);
+                }
+            } else {
+                visitCell(cellX, fromY, nearest);
+                visitCell(cellX, toY, nearest);
+            }
+        }
+    }
+
+    private void visitCell(long cellX, long cellY, Nearest nearest) {
+        if (cellY >= minCellY && cellY <= maxCellY) {
+            Cell cell = cells.get(key((int) cellX, (int) cellY));
+            if (cell != null) {
+                cell.nearest(nearest);
+            }
+        }
+    }
+
+    private void recomputeBounds() {
+        minCellX = Integer.MAX_VALUE;
+        minCellY = Integer.MAX_VALUE;
+        maxCellX = Integer.MIN_VALUE;
+        maxCellY = Integer.MIN_VALUE;
+        cells.forEachKey(key -> {
+            int cellX = (int) (key >> 32);
+            int cellY = (int) key;
+            minCellX = Math.min(minCellX, cellX);
+            minCellY = Math.min(minCellY, cellY);
+            maxCellX = Math.max(maxCellX, cellX);
+            maxCellY = Math.max(maxCellY, cellY);
+        });
+        boundsStale = false;
+    }
+
+    private int cellOf(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    // Running best candidate of a nearest-neighbour search
+    private static final class Nearest {
+        final int x;
+        final int y;
+        Tree best;
+        double bestDistance = Double.POSITIVE_INFINITY;
+
+        Nearest(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    // Trees of one cell with their coordinates stored alongside
+    private static final class Cell {
+        private Tree[] trees = new Tree[4];
+        private int[] xs = new int[4];
+        private int[] ys = new int[4];
+        private int size;
+
+        void add(Tree tree) {
+            if (size == trees.length) {
+                trees = Arrays.copyOf(trees, size * 2);
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            trees[size] = tree;
+            xs[size] = tree.getX();
+            ys[size] = tree.getY();
+            size++;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean remove(Tree tree) {
+            for (int i = 0; i < size; i++) {
+                if (trees[i] == tree) {
+                    size--;
+                    trees[i] = trees[size];
+                    xs[i] = xs[size];
+                    ys[i] = ys[size];
+                    trees[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void query(int minX, int minY, int maxX, int maxY, Consumer<Tree> consumer) {
+            for (int i = 0; i < size; i++) {
+                int x = xs[i];
+                int y = ys[i];
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    consumer.accept(trees[i]);
+                }
+            }
+        }
+
+        void nearest(Nearest nearest) {
+            for (int i = 0; i < size; i++) {
+                double dx = (double) xs[i] - nearest.x;
+                double dy = (double) ys[i] - nearest.y;
+                double distance = dx * dx + dy * dy;
+                if (distance < nearest.bestDistance) {
+                    nearest.bestDistance = distance;
+                    nearest.best = trees[i];
+                }
+            }
+        }
+    }
+
+    // Open-addressing map from packed cell coordinates to cells, avoiding Long boxing
+    private static final class CellMap {
+        private long[] keys = new long[64];
+        private Cell[] values = new Cell[64];
+        private int size;
+
+        Cell get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                Cell value = values[slot];
+                if (value == null || keys[slot] == key) {
+                    return value;
+                }
+            }
+        }
+
+        void put(long key, Cell cell) {
+            if (size * 2 >= keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = cell;
+            size++;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == null) {
+                return;
+            }
+            // Move later entries of the probe run into the hole when their home slot
+            // is not between the hole and them, so lookups still reach them
+            int hole = slot;
+            for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            values[hole] = null;
+            size--;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(Consumer<Cell> consumer) {
+            for (Cell value : values) {
+                if (value != null) {
+                    consumer.accept(value);
+                }
+            }
+        }
+
+        void forEachKey(LongConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) {
+                    consumer.accept(keys[i]);
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Cell[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Cell[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
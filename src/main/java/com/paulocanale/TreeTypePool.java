@@ -0,0 +1,215 @@
+package com.paulocanale;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * TreeType Pool
+ *
+ * Thread-safe intern pool for TreeType flyweights. The (name, color, texture) key
+ * is resolved through three nested concurrent maps, so a lookup never builds a
+ * composite key and a hit allocates nothing and takes no lock. Misses create the
+ * TreeType inside ConcurrentHashMap.compute, so each key is created exactly once
+ * even when many threads ask for it at the same time.
+ *
+ * With WEAK or SOFT retention, TreeTypes no longer referenced elsewhere may be
+ * reclaimed by the garbage collector; their entries, and the inner maps they
+ * leave empty, are purged on later lookups. Inserting and purging both go through
+ * the outer map's compute for the name, so a purge never drops a map that a
+ * concurrent miss is inserting into.
+ */
+final class TreeTypePool {
+    enum Retention { STRONG, WEAK, SOFT }
+
+    private final Retention retention;
+    private final Consumer<TreeType> creationListener;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, Object>>> types =
+            new ConcurrentHashMap<>();
+    private final ReferenceQueue<TreeType> collected = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TreeTypePool(Retention retention) {
+        this(retention, type -> { });
+    }
+
+    /**
+     * @param retention        how strongly the pool holds on to its TreeTypes
+     * @param creationListener called once for every TreeType the pool creates
+     */
+    public TreeTypePool(Retention retention, Consumer<TreeType> creationListener) {
+        this.retention = retention;
+        this.creationListener = creationListener;
+    }
+
+    public TreeType get(String name, String color, String texture) {
+        expungeCollected();
+        ConcurrentHashMap<String, ConcurrentHashMap<String, Object>> byColor = types.get(name);
+        if (byColor != null) {
+            ConcurrentHashMap<String, Object> byTexture = byColor.get(color);
+            if (byTexture != null) {
+                TreeType type = unwrap(byTexture.get(texture));
+                if (type != null) {
+                    hits.increment();
+                    return type;
+                }
+            }
+        }
+        return create(name, color, texture);
+    }
+
+    // Resolves the key again from the top, under the name's lock, so the inner maps
+    // it inserts into cannot be dropped by a concurrent expunge
+    private TreeType create(String name, String color, String texture) {
+        TreeType[] created = new TreeType[1];
+        Object[] entry = new Object[1];
+        types.compute(name, (nameKey, byColor) -> {
+            if (byColor == null) {
+                byColor = new ConcurrentHashMap<>();
+            }
+            byColor.computeIfAbsent(color, key -> new ConcurrentHashMap<>())
+                    .compute(texture, (key, existing) -> {
+                        if (unwrap(existing) == null) {
+                            created[0] = new TreeType(name, color, texture);
+                            existing = wrap(created[0], name, color, texture);
+                        }
+                        entry[0] = existing;
+                        return existing;
+                    });
+            return byColor;
+        });
+        if (created[0] == null) {
+            // Another thread created it first
+            hits.increment();
+            return unwrap(entry[0]);
+        }
+        misses.increment();
+        creationListener.accept(created[0]);
+        return created[0];
+    }
+
+    private Object wrap(TreeType type, String name, String color, String texture) {
+        switch (retention) {
+            case WEAK:
+                return new WeakEntry(type, collected, name, color, texture);
+            case SOFT:
+                return new SoftEntry(type, collected, name, color, texture);
+            default:
+                return type;
+        }
+    }
+
+    private static TreeType unwrap(Object entry) {
+        if (entry instanceof Reference<?> reference) {
+            return (TreeType) reference.get();
+        }
+        return (TreeType) entry;
+    }
+
+    // Removes entries whose TreeType was reclaimed, unless a new one already replaced
+    // them, along with the color and name maps they leave empty
+    private void expungeCollected() {
+        Reference<? extends TreeType> reference;
+        while ((reference = collected.poll()) != null) {
+            PoolKey key = (PoolKey) reference;
+            Reference<? extends TreeType> stale = reference;
+            types.computeIfPresent(key.name(), (name, byColor) -> {
+                byColor.computeIfPresent(key.color(), (color, byTexture) -> {
+                    byTexture.remove(key.texture(), stale);
+                    return byTexture.isEmpty() ? null : byTexture;
+                });
+                return byColor.isEmpty() ? null : byColor;
+            });
+        }
+    }
+
+    /**
+     * @return the number of TreeTypes currently held by the pool
+     */
+    public int size() {
+        expungeCollected();
+        int size = 0;
+        for (ConcurrentHashMap<String, ConcurrentHashMap<String, Object>> byColor : types.values()) {
+            for (ConcurrentHashMap<String, Object> byTexture : byColor.values()) {
+                for (Object entry : byTexture.values()) {
+                    if (unwrap(entry) != null) {
+                        size++;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Key of a reference entry, needed to find it again once its TreeType is reclaimed
+    private interface PoolKey {
+        String name();
+
+        String color();
+
+        String texture();
+    }
+
+    private static final class WeakEntry extends WeakReference<TreeType> implements PoolKey {
+        private final String name;
+        private final String color;
+        private final String texture;
+
+        WeakEntry(TreeType type, ReferenceQueue<TreeType> queue, String name, String color, String texture) {
+            super(type, queue);
+            this.name = name;
+            this.color = color;
+            this.texture = texture;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String color() {
+            return color;
+        }
+
+        public String texture() {
+            return texture;
+        }
+    }
+
+    private static final class SoftEntry extends SoftReference<TreeType> implements PoolKey {
+        private final String name;
+        private final String color;
+        private final String texture;
+
+        SoftEntry(TreeType type, ReferenceQueue<TreeType> queue, String name, String color, String texture) {
+            super(type, queue);
+            this.name = name;
+            this.color = color;
+            this.texture = texture;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String color() {
+            return color;
+        }
+
+        public String texture() {
+            return texture;
+        }
+    }
+}
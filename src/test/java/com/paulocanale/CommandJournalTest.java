@@ -0,0 +1,99 @@
+package com.paulocanale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommandJournalTest {
+    // 8 records per segment, so a few commands roll the journal over
+    private static final int SEGMENT_SIZE = 8 * Long.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryCommandAcrossSegments() throws IOException {
+        appendToggles(20);
+
+        Light light = new Light();
+        try (CommandJournal journal = open(light, SEGMENT_SIZE)) {
+            assertEquals(20, journal.size());
+            assertEquals(20, journal.replay(CommandPattern::execute));
+        }
+        assertTrue(light.isOn());
+        assertTrue(Files.exists(segment(16)));
+    }
+
+    @Test
+    void tornTailIsNotReplayedAndAppendsResumeInItsPlace() throws IOException {
+        appendToggles(20);
+        // A crash during the 21st append left half a record behind the last whole one
+        try (FileChannel channel = FileChannel.open(segment(16), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{CommandCodec.TURN_OFF, 0, 0, 0x7F}), 4 * Long.BYTES);
+        }
+
+        Light light = new Light();
+        try (CommandJournal journal = open(light, SEGMENT_SIZE)) {
+            assertEquals(20, journal.replay(CommandPattern::execute));
+            assertTrue(light.isOn());
+            new RemoteControl(journal).submit(new TurnOffCommand(light));
+        }
+
+        Light reopened = new Light();
+        try (CommandJournal journal = open(reopened, SEGMENT_SIZE)) {
+            assertEquals(21, journal.replay(CommandPattern::execute));
+        }
+        assertFalse(reopened.isOn());
+    }
+
+    @Test
+    void rejectsADifferentSegmentSize() throws IOException {
+        appendToggles(20);
+
+        Light light = new Light();
+        assertThrows(IOException.class, () -> open(light, SEGMENT_SIZE / 2).close());
+        assertThrows(IOException.class, () -> open(light, SEGMENT_SIZE * 2).close());
+    }
+
+    @Test
+    void acceptsAnEmptyLastSegment() throws IOException {
+        appendToggles(16);
+        // The process stopped while creating the third segment
+        Files.createFile(segment(24));
+
+        Light light = new Light();
+        try (CommandJournal journal = open(light, SEGMENT_SIZE)) {
+            assertEquals(16, journal.replay(CommandPattern::execute));
+        }
+    }
+
+    // Appends off, on, off, on ... so the light ends on after an even count
+    private void appendToggles(int count) throws IOException {
+        Light light = new Light();
+        try (CommandJournal journal = open(light, SEGMENT_SIZE)) {
+            RemoteControl remote = new RemoteControl(journal);
+            for (int i = 0; i < count; i++) {
+                remote.submit(i % 2 == 0 ? new TurnOffCommand(light) : new TurnOnCommand(light));
+            }
+        }
+    }
+
+    private CommandJournal open(Light light, int segmentSize) throws IOException {
+        return CommandJournal.open(directory, new CommandCodec().register(0, light), segmentSize);
+    }
+
+    private Path segment(long start) {
+        return directory.resolve(String.format("%020d.journal", start));
+    }
+}